@@ -5,4 +5,5 @@
  * 
  */
 module Assignment3 {
-}
\ No newline at end of file
+    requires jdk.jfr;
+}
@@ -0,0 +1,752 @@
+package testing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import testing.Instrumentation.Operation;
+
+/**
+ * Represents a doubly linked list of topics stored as parallel arrays instead of one node object per topic.
+ * <p>
+ * Each topic takes a slot: the index of the slot in {@link #prev} and {@link #next} gives its neighbours, and the same
+ * index in {@link #topics} and {@link #words} gives its name and its words. Following the links reads small int arrays
+ * instead of dereferencing a node per topic, so walking the topics in either direction stays in a few cache lines.
+ * Slots freed by removals are chained in a free list and reused; {@link #compact()} renumbers the slots in list order,
+ * so that a forward walk reads the arrays sequentially again after many insertions in the middle.
+ * <p>
+ * The operations are those of {@link TopicList}, shared with {@link OurDLinkedList}, without its word indexes, query cache,
+ * lazy loading and journal: word searches and prefix queries scan the words of every topic.
+ * It is selected with {@link TopicStorage#ARRAY}.
+ */
+public class ArrayTopicList implements TopicList {
+
+    /** Link of the first and last slots, and end of the free list. */
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** How the words of each new topic are stored. */
+    private final WordStorage storage;
+    /** Slot of the previous topic of each slot. */
+    private int[] prev;
+    /** Slot of the next topic of each slot, or of the next free slot for a free slot. */
+    private int[] next;
+    /** Topic of each slot, null for a free slot. */
+    private String[] topics;
+    /** Words of each slot, null for a free slot. */
+    private WordList[] words;
+    private int head = NIL;
+    private int tail = NIL;
+    /** First slot of the free list. */
+    private int free = NIL;
+    /** Number of slots used at least once; the slots after them are free without being in the free list. */
+    private int used;
+    private int size;
+    /** Number of structural changes, used by iterators to detect concurrent modifications. */
+    private int modCount;
+    /**
+     * Slot and number of occurrences of each topic. The slot is only kept for a topic occurring once;
+     * the first occurrence of a duplicated topic is found by walking from the head.
+     */
+    private final HashMap<String, int[]> topicIndex;
+
+    /**
+     * Constructs an empty list storing its words in linked lists.
+     */
+    public ArrayTopicList() {
+        this(WordStorage.LINKED);
+    }
+
+    /**
+     * Constructs an empty list whose topics store their words as specified.
+     *
+     * @param storage How the words of each topic are stored.
+     */
+    public ArrayTopicList(WordStorage storage) {
+        this.storage = storage;
+        this.prev = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.topics = new String[INITIAL_CAPACITY];
+        this.words = new WordList[INITIAL_CAPACITY];
+        this.topicIndex = new HashMap<>();
+    }
+
+    /**
+     * Adds a new topic without words at the head of the list.
+     *
+     * @param topic The topic to be added at the head of the list.
+     */
+    @Override
+    public void addAtHead(String topic) {
+        long start = Instrumentation.start();
+        link(allocate(topic), NIL, head);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+    }
+
+    /**
+     * Adds a new topic without words at the tail of the list.
+     *
+     * @param topic The topic to be added at the tail of the list.
+     */
+    @Override
+    public void addAtTail(String topic) {
+        long start = Instrumentation.start();
+        link(allocate(topic), tail, NIL);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+    }
+
+    /**
+     * Adds a new topic with the given words at the tail of the list.
+     *
+     * @param topic The topic to be added at the tail of the list.
+     * @param words The words of the new topic, in order.
+     */
+    @Override
+    public void appendTopic(String topic, Collection<String> words) {
+        long start = Instrumentation.start();
+        int slot = allocate(topic);
+        this.words[slot].addAll(words);
+        link(slot, tail, NIL);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+    }
+
+    /**
+     * Adds a new topic with the given words before the first occurrence of a reference topic.
+     *
+     * @param referenceValue The topic before which the new topic is to be added.
+     * @param newValue       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    @Override
+    public boolean addBefore(String referenceValue, String newValue, Collection<String> words) {
+        long start = Instrumentation.start();
+        int reference = slotOf(referenceValue);
+        if (reference == NIL) {
+            return false;
+        }
+        int slot = allocate(newValue);
+        this.words[slot].addAll(words);
+        link(slot, prev[reference], reference);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+        return true;
+    }
+
+    /**
+     * Adds a new topic with the given words after the first occurrence of a reference topic.
+     *
+     * @param referenceValue The topic after which the new topic is to be added.
+     * @param newValue       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    @Override
+    public boolean addAfter(String referenceValue, String newValue, Collection<String> words) {
+        long start = Instrumentation.start();
+        int reference = slotOf(referenceValue);
+        if (reference == NIL) {
+            return false;
+        }
+        int slot = allocate(newValue);
+        this.words[slot].addAll(words);
+        link(slot, reference, next[reference]);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+        return true;
+    }
+
+    /**
+     * Removes the head topic of the list.
+     *
+     * @return The topic removed, or null if the list is empty.
+     */
+    @Override
+    public String removeHead() {
+        return head == NIL ? null : unlink(head);
+    }
+
+    /**
+     * Removes the tail topic of the list.
+     *
+     * @return The topic removed, or null if the list is empty.
+     */
+    @Override
+    public String removeTail() {
+        return tail == NIL ? null : unlink(tail);
+    }
+
+    /**
+     * Removes the first occurrence of a topic from the list.
+     *
+     * @param topic The topic to be removed.
+     * @return The topic removed, or null if the topic is not found.
+     */
+    @Override
+    public String removeValue(String topic) {
+        int slot = slotOf(topic);
+        return slot == NIL ? null : unlink(slot);
+    }
+
+    /**
+     * Retrieves the words of the first occurrence of a topic.
+     *
+     * @param topic The topic whose words are to be retrieved.
+     * @return The words of the topic, or null if the topic is not found.
+     */
+    @Override
+    public WordList getWordsForTopic(String topic) {
+        long start = Instrumentation.start();
+        int slot = slotOf(topic);
+        Instrumentation.record(Operation.TOPIC_LOOKUP, start, 0);
+        return slot == NIL ? null : words[slot];
+    }
+
+    /**
+     * Returns the number of topics in the list.
+     *
+     * @return The number of topics.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves the topics of the list, from head to tail.
+     *
+     * @return An array of the topics, in order.
+     */
+    @Override
+    public String[] getTopics() {
+        String[] result = new String[size];
+        int index = 0;
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            result[index++] = topics[slot];
+        }
+        return result;
+    }
+
+    /**
+     * Displays the topics of the list in forward order.
+     * If the list is empty, prints a message indicating so.
+     */
+    @Override
+    public void displayForward() {
+        display(head, next);
+    }
+
+    /**
+     * Displays the topics of the list in backward order.
+     * If the list is empty, prints a message indicating so.
+     */
+    @Override
+    public void displayBackward() {
+        display(tail, prev);
+    }
+
+    /**
+     * Finds the first topic, from the head, having a word that meets the given condition, scanning every word.
+     *
+     * @param wordFilter The condition a word must meet.
+     * @return The first topic having a matching word, or null if no word matches.
+     */
+    public String findTopic(Predicate<String> wordFilter) {
+        long start = Instrumentation.start();
+        int traversed = 0;
+        try {
+            for (int slot = head; slot != NIL; slot = next[slot]) {
+                for (String word : words[slot]) {
+                    traversed++;
+                    if (wordFilter.test(word)) {
+                        return topics[slot];
+                    }
+                }
+            }
+            return null;
+        } finally {
+            Instrumentation.record(Operation.WORD_SCAN, start, traversed);
+        }
+    }
+
+    /**
+     * Searches for a word, ignoring case, and returns the first topic containing it, scanning the words from the head.
+     *
+     * @param word The word to search for.
+     * @return The topic closest to the head containing the word, or null if the word is not found.
+     */
+    @Override
+    public String searchWord(String word) {
+        ArrayList<String> topics = topicsOfWord(word, true);
+        return topics.isEmpty() ? null : topics.get(0);
+    }
+
+    /**
+     * Searches for a word, ignoring case, and returns every topic containing it, scanning every word.
+     *
+     * @param word The word to search for.
+     * @return An ArrayList of the topics containing the word in the order of the list, empty if the word is not found.
+     */
+    @Override
+    public ArrayList<String> searchWordTopics(String word) {
+        return topicsOfWord(word, false);
+    }
+
+    /**
+     * Retrieves the words starting with the specified letter from all topics, sorted alphabetically.
+     *
+     * @param letter The starting letter of the words to retrieve.
+     * @return An ArrayList containing the matching words, sorted alphabetically.
+     */
+    @Override
+    public ArrayList<String> getWordsStartingWithLetter(char letter) {
+        return getWordsWithPrefix(String.valueOf(letter));
+    }
+
+    /**
+     * Retrieves the words starting with the specified prefix from all topics, scanning every word, sorted alphabetically.
+     * A word occurring several times is listed as many times.
+     *
+     * @param prefix The prefix of the words to retrieve.
+     * @return An ArrayList containing the matching words, sorted alphabetically.
+     */
+    @Override
+    public ArrayList<String> getWordsWithPrefix(String prefix) {
+        long start = Instrumentation.start();
+        ArrayList<String> matches = new ArrayList<>();
+        byte[] prefixBytes = storage == WordStorage.OFF_HEAP ? OffHeapWordList.encode(prefix) : null;
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            if (prefixBytes != null) {
+                ((OffHeapWordList) words[slot]).collectWithPrefix(prefixBytes, matches);
+            } else {
+                for (String word : words[slot]) {
+                    if (word.startsWith(prefix)) {
+                        matches.add(word);
+                    }
+                }
+            }
+        }
+        Collections.sort(matches);
+        Instrumentation.record(Operation.PREFIX_QUERY, start, size);
+        return matches;
+    }
+
+    /**
+     * Adds a word at the beginning of the words of the specified topic.
+     *
+     * @param topic The topic to which the word is to be added.
+     * @param word  The word to be added.
+     * @return true if the word was added, false if the topic was not found.
+     */
+    @Override
+    public boolean addWordToTopic(String topic, String word) {
+        WordList words = getWordsForTopic(topic);
+        if (words == null) {
+            return false;
+        }
+        words.addAtHead(word);
+        return true;
+    }
+
+    /**
+     * Adds words at the end of the words of the specified topic, keeping their order.
+     *
+     * @param topic The topic to which the words are to be added.
+     * @param words The words to be added.
+     * @return true if the words were added, false if the topic was not found.
+     */
+    @Override
+    public boolean addWordsToTopic(String topic, Collection<String> words) {
+        WordList topicWords = getWordsForTopic(topic);
+        if (topicWords == null) {
+            return false;
+        }
+        topicWords.addAll(words);
+        return true;
+    }
+
+    /**
+     * Removes the first occurrence of a word from the specified topic.
+     *
+     * @param topic The topic from which the word is to be removed.
+     * @param word  The word to be removed.
+     * @return true if the word was removed, false if the topic or the word was not found.
+     */
+    @Override
+    public boolean removeWordFromTopic(String topic, String word) {
+        WordList words = getWordsForTopic(topic);
+        return words != null && words.removeValue(word) != null;
+    }
+
+    /**
+     * Replaces the first occurrence of a word of the specified topic, keeping its position.
+     *
+     * @param topic   The topic in which the word is to be replaced.
+     * @param oldWord The word to be replaced.
+     * @param newWord The word replacing it.
+     * @return true if the word was replaced, false if the topic or the old word was not found.
+     */
+    @Override
+    public boolean replaceWord(String topic, String oldWord, String newWord) {
+        WordList words = getWordsForTopic(topic);
+        return words != null && words.replace(oldWord, newWord);
+    }
+
+    /**
+     * Performs the given action on each topic of the list, in forward order.
+     *
+     * @param action The action receiving each topic and its list of words.
+     */
+    @Override
+    public void forEachTopic(BiConsumer<String, WordList> action) {
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            action.accept(topics[slot], words[slot]);
+        }
+    }
+
+    /**
+     * Saves all topics and their words to a text file in the format of {@link OurDLinkedList#saveToFile(String)},
+     * printing the outcome.
+     *
+     * @param fileName The name of the file to which the content will be saved.
+     */
+    @Override
+    public void saveToFile(String fileName) {
+        try {
+            int wordCount = writeToFile(fileName);
+            System.out.println("Saved " + size + " topic(s) and " + wordCount + " word(s) to file: " + fileName);
+        } catch (IOException e) {
+            System.out.println("An error occurred while saving to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves all topics and their words to a text file, without printing anything.
+     *
+     * @param fileName The name of the file to which the content will be saved.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file; the target is then left unchanged.
+     */
+    @Override
+    public int writeToFile(String fileName) throws IOException {
+        return OurDLinkedList.writeText(this, fileName);
+    }
+
+    /**
+     * Saves all topics and their words to a binary snapshot file.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file.
+     * @see VocabularySnapshot
+     */
+    @Override
+    public int saveSnapshot(String fileName) throws IOException {
+        return VocabularySnapshot.write(this, fileName);
+    }
+
+    /**
+     * Loads the topics of a binary snapshot file and adds them, with their words, at the tail of the list.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while reading the file, or if the file is not a valid snapshot.
+     * @see VocabularySnapshot
+     */
+    @Override
+    public int loadSnapshot(String fileName) throws IOException {
+        return VocabularySnapshot.read(fileName, this);
+    }
+
+    /**
+     * Renumbers the slots in list order, so that walking the topics reads the arrays sequentially,
+     * and trims the arrays to the number of topics.
+     */
+    public void compact() {
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+        int[] newPrev = new int[capacity];
+        int[] newNext = new int[capacity];
+        String[] newTopics = new String[capacity];
+        WordList[] newWords = new WordList[capacity];
+        int index = 0;
+        for (int slot = head; slot != NIL; slot = next[slot], index++) {
+            newPrev[index] = index - 1;
+            newNext[index] = index + 1;
+            newTopics[index] = topics[slot];
+            newWords[index] = words[slot];
+        }
+        if (size > 0) {
+            newNext[size - 1] = NIL;
+        }
+        prev = newPrev;
+        next = newNext;
+        topics = newTopics;
+        words = newWords;
+        head = size > 0 ? 0 : NIL;
+        tail = size - 1;
+        free = NIL;
+        used = size;
+        modCount++;
+        for (int slot = 0; slot < size; slot++) {
+            int[] entry = topicIndex.get(topics[slot]);
+            if (entry[1] == 1) {
+                entry[0] = slot;
+            }
+        }
+    }
+
+    /**
+     * Retrieves an iterator over the topics, from head to tail.
+     * The iterator is fail-fast: it throws a {@link ConcurrentModificationException} if topics are
+     * added or removed during the iteration.
+     *
+     * @return An iterator over the topics.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new SlotIterator(head, next);
+    }
+
+    /**
+     * Retrieves an iterator over the topics, from tail to head. Like {@link #iterator()}, it is fail-fast.
+     *
+     * @return An iterator over the topics, in reverse order.
+     */
+    @Override
+    public Iterator<String> descendingIterator() {
+        return new SlotIterator(tail, prev);
+    }
+
+    /**
+     * Represents an iterator following the links of one direction from a first slot.
+     */
+    private final class SlotIterator implements Iterator<String> {
+        private int slot;
+        private final int[] links;
+        private final int expectedModCount = modCount;
+
+        /**
+         * Constructs an iterator starting at the given slot.
+         *
+         * @param first The first slot reached, or {@link #NIL} for an empty iteration.
+         * @param links The links to follow, {@link #next} or {@link #prev}.
+         */
+        private SlotIterator(int first, int[] links) {
+            this.slot = first;
+            this.links = links;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot != NIL;
+        }
+
+        @Override
+        public String next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (slot == NIL) {
+                throw new NoSuchElementException();
+            }
+            String topic = topics[slot];
+            slot = links[slot];
+            return topic;
+        }
+    }
+
+    /**
+     * Retrieves the topics containing a word, ignoring case, by scanning the words of every topic.
+     *
+     * @param word      The word to search for.
+     * @param firstOnly true to stop at the first topic containing the word.
+     * @return The topics containing the word, in the order of the list.
+     */
+    private ArrayList<String> topicsOfWord(String word, boolean firstOnly) {
+        long start = Instrumentation.start();
+        String folded = OurDLinkedList.foldCase(word);
+        byte[] foldedBytes = storage == WordStorage.OFF_HEAP ? OffHeapWordList.encode(folded) : null;
+        ArrayList<String> result = new ArrayList<>();
+        int traversed = 0;
+        for (int slot = head; slot != NIL && !(firstOnly && !result.isEmpty()); slot = next[slot], traversed++) {
+            boolean found = false;
+            if (foldedBytes != null) {
+                found = ((OffHeapWordList) words[slot]).containsFolded(folded, foldedBytes);
+            } else {
+                for (String candidate : words[slot]) {
+                    if (matchesFolded(candidate, folded)) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (found) {
+                result.add(topics[slot]);
+            }
+        }
+        Instrumentation.record(Operation.SEARCH_WORD, start, traversed);
+        return result;
+    }
+
+    /**
+     * Checks whether a word folds to the given case-folded word, without folding most words that cannot match.
+     *
+     * @param candidate The word to check.
+     * @param folded    The case-folded word searched for.
+     * @return true if the candidate, case-folded, equals the folded word.
+     */
+    private static boolean matchesFolded(String candidate, String folded) {
+        if (candidate.length() == folded.length()) {
+            // Words folding to the same string of the same length are equal ignoring case
+            return candidate.equalsIgnoreCase(folded) && OurDLinkedList.foldCase(candidate).equals(folded);
+        }
+        // Only a dotted capital I changes length when folded
+        return candidate.indexOf('\u0130') >= 0 && OurDLinkedList.foldCase(candidate).equals(folded);
+    }
+
+    /**
+     * Prints the topics following the given links from a first slot.
+     *
+     * @param first The slot to start from.
+     * @param links The links to follow, {@link #next} or {@link #prev}.
+     */
+    private void display(int first, int[] links) {
+        if (size == 0) {
+            System.out.println("The list is empty");
+        } else {
+            PrintWriter out = OurDLinkedList.bufferedConsole();
+            out.println("The list has " + size + " element(s):");
+            for (int slot = first; slot != NIL; slot = links[slot]) {
+                out.println(topics[slot]);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Takes a free slot for a new topic with no words, growing the arrays if none is left, and indexes the topic.
+     * The slot is not linked yet.
+     *
+     * @param topic The topic of the slot.
+     * @return The slot.
+     */
+    private int allocate(String topic) {
+        int slot;
+        if (free != NIL) {
+            slot = free;
+            free = next[slot];
+        } else {
+            if (used == topics.length) {
+                int capacity = topics.length * 2;
+                prev = Arrays.copyOf(prev, capacity);
+                next = Arrays.copyOf(next, capacity);
+                topics = Arrays.copyOf(topics, capacity);
+                words = Arrays.copyOf(words, capacity);
+            }
+            slot = used++;
+        }
+        topics[slot] = WordPool.intern(topic);
+        words[slot] = storage.newList(null);
+        int[] entry = topicIndex.get(topic);
+        if (entry == null) {
+            topicIndex.put(topic, new int[] {slot, 1});
+        } else {
+            entry[1]++;
+        }
+        return slot;
+    }
+
+    /**
+     * Links a slot between two others.
+     *
+     * @param slot   The slot to link.
+     * @param before The slot preceding it, or {@link #NIL} to make it the head.
+     * @param after  The slot following it, or {@link #NIL} to make it the tail.
+     */
+    private void link(int slot, int before, int after) {
+        prev[slot] = before;
+        next[slot] = after;
+        if (before == NIL) {
+            head = slot;
+        } else {
+            next[before] = slot;
+        }
+        if (after == NIL) {
+            tail = slot;
+        } else {
+            prev[after] = slot;
+        }
+        modCount++;
+        size++;
+    }
+
+    /**
+     * Unlinks a slot, forgets its topic and puts it in the free list.
+     *
+     * @param slot The slot to remove.
+     * @return The topic of the slot.
+     */
+    private String unlink(int slot) {
+        long start = Instrumentation.start();
+        String topic = topics[slot];
+        if (prev[slot] == NIL) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NIL) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+        topics[slot] = null;
+        words[slot] = null;
+        next[slot] = free;
+        free = slot;
+        modCount++;
+        size--;
+        int traversed = 0;
+        int[] entry = topicIndex.get(topic);
+        if (--entry[1] == 0) {
+            topicIndex.remove(topic);
+        } else if (entry[1] == 1) {
+            // The topic occurs once again: find its remaining slot
+            for (int other = head; other != NIL; other = next[other], traversed++) {
+                if (topics[other].equals(topic)) {
+                    entry[0] = other;
+                    break;
+                }
+            }
+        }
+        Instrumentation.record(Operation.TOPIC_REMOVE, start, traversed);
+        return topic;
+    }
+
+    /**
+     * Finds the slot of the first occurrence of a topic.
+     *
+     * @param topic The topic to look for.
+     * @return The slot of the topic, or {@link #NIL} if the topic is not in the list.
+     */
+    private int slotOf(String topic) {
+        int[] entry = topicIndex.get(topic);
+        if (entry == null) {
+            return NIL;
+        } else if (entry[1] == 1) {
+            return entry[0];
+        }
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            if (topics[slot].equals(topic)) {
+                return slot;
+            }
+        }
+        return NIL;
+    }
+}
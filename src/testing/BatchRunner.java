@@ -0,0 +1,196 @@
+package testing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a file of vocabulary commands against a topic list, without any console interaction.
+ * <p>
+ * Each line holds one command and its arguments separated by '|', so that topics and words may contain spaces.
+ * Blank lines and lines starting with "//" are ignored. The commands are:
+ * <pre>
+ * load | file                              load a text vocabulary or a snapshot, or merge the files of a directory
+ * save | file                              save as text
+ * snapshot | file                          save as a binary snapshot
+ * append | topic | word | word ...         add a topic at the tail
+ * add-before | reference | topic | word ... add a topic before another one
+ * add-after | reference | topic | word ...  add a topic after another one
+ * remove | topic                           remove a topic
+ * add-word | topic | word                  add a word at the beginning of a topic
+ * remove-word | topic | word               remove a word from a topic
+ * modify-word | topic | old word | new word replace a word of a topic
+ * search | word                            print the topics containing a word
+ * prefix | prefix                          print the words starting with a prefix
+ * </pre>
+ * A command that fails is reported with its line number, and the following commands still run.
+ */
+public class BatchRunner {
+
+    private final TopicList dll;
+    private final PrintStream out;
+
+    /**
+     * Constructs a runner applying commands to the given doubly linked list.
+     *
+     * @param dll The topic list the commands apply to.
+     * @param out The stream receiving the results of queries and the errors.
+     */
+    public BatchRunner(TopicList dll, PrintStream out) {
+        this.dll = dll;
+        this.out = out;
+    }
+
+    /**
+     * Runs every command of a command file.
+     *
+     * @param fileName The name of the command file.
+     * @return The number of commands that failed.
+     * @throws IOException if an I/O error occurs while reading the command file.
+     */
+    public int run(String fileName) throws IOException {
+        int failures = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(fileName), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("//")) {
+                    continue;
+                }
+                String error = execute(split(line));
+                if (error != null) {
+                    out.println(fileName + ":" + lineNumber + ": " + error);
+                    failures++;
+                }
+            }
+        }
+        out.flush();
+        return failures;
+    }
+
+    /**
+     * Runs a single command.
+     *
+     * @param command The name of the command followed by its arguments.
+     * @return null if the command succeeded, otherwise a message describing the error.
+     */
+    public String execute(List<String> command) {
+        String name = command.get(0);
+        List<String> arguments = command.subList(1, command.size());
+        try {
+            switch (name) {
+                case "load":
+                    requireArguments(arguments, 1);
+                    if (Files.isDirectory(Path.of(arguments.get(0)))) {
+                        new VocabularyIngest().ingest(VocabularyIngest.listFiles(arguments.get(0)), dll);
+                    } else if (VocabularySnapshot.isSnapshot(arguments.get(0))) {
+                        dll.loadSnapshot(arguments.get(0));
+                    } else {
+                        VocabularyLoader.load(arguments.get(0), dll);
+                    }
+                    return null;
+                case "save":
+                    requireArguments(arguments, 1);
+                    dll.writeToFile(arguments.get(0));
+                    return null;
+                case "snapshot":
+                    requireArguments(arguments, 1);
+                    dll.saveSnapshot(arguments.get(0));
+                    return null;
+                case "append":
+                    requireArguments(arguments, 1);
+                    dll.appendTopic(arguments.get(0), words(arguments, 1));
+                    return null;
+                case "add-before":
+                    requireArguments(arguments, 2);
+                    return dll.addBefore(arguments.get(0), arguments.get(1), words(arguments, 2))
+                            ? null : topicNotFound(arguments.get(0));
+                case "add-after":
+                    requireArguments(arguments, 2);
+                    return dll.addAfter(arguments.get(0), arguments.get(1), words(arguments, 2))
+                            ? null : topicNotFound(arguments.get(0));
+                case "remove":
+                    requireArguments(arguments, 1);
+                    return dll.removeValue(arguments.get(0)) != null ? null : topicNotFound(arguments.get(0));
+                case "add-word":
+                    requireArguments(arguments, 2);
+                    return dll.addWordToTopic(arguments.get(0), arguments.get(1)) ? null : topicNotFound(arguments.get(0));
+                case "remove-word":
+                    requireArguments(arguments, 2);
+                    return dll.removeWordFromTopic(arguments.get(0), arguments.get(1))
+                            ? null : "word '" + arguments.get(1) + "' not found in topic '" + arguments.get(0) + "'";
+                case "modify-word":
+                    requireArguments(arguments, 3);
+                    return dll.replaceWord(arguments.get(0), arguments.get(1), arguments.get(2))
+                            ? null : "word '" + arguments.get(1) + "' not found in topic '" + arguments.get(0) + "'";
+                case "search":
+                    requireArguments(arguments, 1);
+                    out.println(arguments.get(0) + ": " + String.join(", ", dll.searchWordTopics(arguments.get(0))));
+                    return null;
+                case "prefix":
+                    requireArguments(arguments, 1);
+                    out.println(arguments.get(0) + ": " + String.join(", ", dll.getWordsWithPrefix(arguments.get(0))));
+                    return null;
+                default:
+                    return "unknown command '" + name + "'";
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            return name + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Splits a command line into its trimmed, '|'-separated fields.
+     *
+     * @param line The command line.
+     * @return The name of the command followed by its arguments.
+     */
+    static List<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<>(Arrays.asList(line.split("\\|", -1)));
+        fields.replaceAll(String::trim);
+        return fields;
+    }
+
+    /**
+     * Retrieves the words given as the last arguments of a command, skipping empty ones.
+     *
+     * @param arguments The arguments of the command.
+     * @param from      The index of the first word among the arguments.
+     * @return The non-empty words, in order.
+     */
+    static List<String> words(List<String> arguments, int from) {
+        ArrayList<String> words = new ArrayList<>(arguments.subList(from, arguments.size()));
+        words.removeIf(String::isEmpty);
+        return words;
+    }
+
+    /**
+     * Checks that a command received at least the expected number of arguments.
+     *
+     * @param arguments The arguments of the command.
+     * @param count     The minimum number of arguments.
+     */
+    static void requireArguments(List<String> arguments, int count) {
+        if (arguments.size() < count || arguments.subList(0, count).contains("")) {
+            throw new IllegalArgumentException("expected at least " + count + " non-empty argument(s)");
+        }
+    }
+
+    /**
+     * Builds the error message of a missing topic.
+     *
+     * @param topic The topic that was not found.
+     * @return The error message.
+     */
+    private static String topicNotFound(String topic) {
+        return "topic '" + topic + "' not found";
+    }
+}
@@ -0,0 +1,381 @@
+package testing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Measures the main list and query operations over vocabularies of increasing size.
+ * <p>
+ * Each benchmark is run a few times to warm up the JIT compiler, then measured several times,
+ * and the median time per operation is reported. Vocabularies are generated from a fixed seed, so two
+ * runs on the same machine work on the same data. For stable results, run it on an otherwise idle machine
+ * with a fixed heap, for example:
+ * <pre>
+ * java -Xms10g -Xmx10g -cp bin testing.Benchmark 1000 10000 100000 1000000 10000000
+ * </pre>
+ * The arguments are the vocabulary sizes in words (1,000 to 10,000,000 by default), optionally
+ * followed by "--storage unrolled", "--storage hashed" or "--storage off_heap" to measure the unrolled,
+ * hash-indexed or off-heap word lists.
+ * <p>
+ * The heap must hold the vocabulary several times over: at 10,000,000 words about 3.5 GB stays live (4.5 GB with
+ * hash-indexed word lists), and loadFromFile builds a second list on top of it, so that size needs a heap of about 10 GB.
+ * Up to 1,000,000 words, a 2 GB heap is enough.
+ */
+public class Benchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long SEED = 42;
+    private static final int WORDS_PER_TOPIC = 100;
+    /** Number of lookups made by each iteration of the lookup benchmarks. */
+    private static final int LOOKUPS = 100_000;
+    /** Number of distinct words looked up by the repeated lookup benchmark. */
+    private static final int REPEATED_WORDS = 100;
+    /** Number of walks over every topic made by each iteration of the traversal benchmarks. */
+    private static final int TRAVERSALS = 100;
+    /** Number of linear operations (addAfter, removeValue) made by each iteration. */
+    private static final int LINEAR_OPERATIONS = 100;
+
+    /** Receives results so that the JIT compiler cannot discard the measured work. */
+    private static volatile long sink;
+
+    private final int size;
+    private final WordStorage storage;
+    private final String[] words;
+    private final String[] topics;
+    /** Words added by the addAfter benchmark, all different and absent from the vocabulary, so none is skipped as a duplicate. */
+    private final String[] added;
+    private final Random random;
+
+    /**
+     * Represents one benchmark.
+     */
+    private interface Case {
+        /**
+         * Prepares the state used by the next run. Not measured.
+         *
+         * @throws IOException if an I/O error occurs.
+         */
+        default void setup() throws IOException {
+        }
+
+        /**
+         * Runs the measured operations.
+         *
+         * @return The number of operations performed.
+         * @throws IOException if an I/O error occurs.
+         */
+        long run() throws IOException;
+    }
+
+    /**
+     * Constructs a benchmark over a generated vocabulary.
+     *
+     * @param size    The number of words of the vocabulary.
+     * @param storage How the words of each topic are stored.
+     */
+    public Benchmark(int size, WordStorage storage) {
+        this.size = size;
+        this.storage = storage;
+        this.random = new Random(SEED);
+        this.words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = Integer.toString(random.nextInt(Integer.MAX_VALUE), 36);
+        }
+        this.topics = new String[Math.max(1, size / WORDS_PER_TOPIC)];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = "topic" + i;
+        }
+        this.added = new String[LINEAR_OPERATIONS];
+        for (int i = 0; i < added.length; i++) {
+            // '-' is not a base-36 digit, so these never match a generated word
+            added[i] = "new-" + i;
+        }
+    }
+
+    /**
+     * Builds a doubly linked list holding the whole vocabulary.
+     *
+     * @return The filled doubly linked list.
+     */
+    private OurDLinkedList buildVocabulary() {
+        OurDLinkedList dll = new OurDLinkedList(storage);
+        for (int t = 0; t < topics.length; t++) {
+            int from = (int) ((long) t * size / topics.length);
+            int to = (int) ((long) (t + 1) * size / topics.length);
+            dll.appendTopic(topics[t], Arrays.asList(words).subList(from, to));
+        }
+        return dll;
+    }
+
+    /**
+     * Builds an array-based topic list holding the whole vocabulary.
+     *
+     * @return The filled array-based topic list.
+     */
+    private ArrayTopicList buildArrayVocabulary() {
+        ArrayTopicList list = new ArrayTopicList(storage);
+        for (int t = 0; t < topics.length; t++) {
+            int from = (int) ((long) t * size / topics.length);
+            int to = (int) ((long) (t + 1) * size / topics.length);
+            list.appendTopic(topics[t], Arrays.asList(words).subList(from, to));
+        }
+        return list;
+    }
+
+    /**
+     * Builds a word list holding the whole vocabulary.
+     *
+     * @return The filled word list.
+     */
+    private WordList buildWordList() {
+        WordList list = storage.newList(null);
+        list.addAll(Arrays.asList(words));
+        return list;
+    }
+
+    /**
+     * Runs every benchmark and prints one line per benchmark.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void runAll() throws IOException {
+        WordList[] list = new WordList[1];
+        OurDLinkedList dll = buildVocabulary();
+        ArrayTopicList array = buildArrayVocabulary();
+        Path file = Files.createTempFile("vocabulary", ".txt");
+        try {
+            measure("addAtEnd", new Case() {
+                @Override
+                public void setup() {
+                    // Let the previous list be collected before the next one is built
+                    list[0] = null;
+                    list[0] = storage.newList(null);
+                }
+
+                @Override
+                public long run() {
+                    for (String word : words) {
+                        list[0].addAtEnd(word);
+                    }
+                    return words.length;
+                }
+            });
+            measure("addAfter", new Case() {
+                @Override
+                public void setup() {
+                    list[0] = null;
+                    list[0] = buildWordList();
+                }
+
+                @Override
+                public long run() {
+                    for (int i = 0; i < LINEAR_OPERATIONS; i++) {
+                        list[0].addAfter(words[random.nextInt(size)], added[i]);
+                    }
+                    return LINEAR_OPERATIONS;
+                }
+            });
+            measure("removeValue", new Case() {
+                @Override
+                public void setup() {
+                    list[0] = null;
+                    list[0] = buildWordList();
+                }
+
+                @Override
+                public long run() {
+                    for (int i = 0; i < LINEAR_OPERATIONS; i++) {
+                        String removed = list[0].removeValue(words[random.nextInt(size)]);
+                        sink += removed == null ? 0 : 1;
+                    }
+                    return LINEAR_OPERATIONS;
+                }
+            });
+            measure("findNodeByTopic", () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    sink += dll.findNodeByTopic(topics[random.nextInt(topics.length)]) == null ? 0 : 1;
+                }
+                return LOOKUPS;
+            });
+            measure("searchWord", () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    // Every other lookup misses
+                    String word = (i & 1) == 0 ? words[random.nextInt(size)] : "missing" + i;
+                    String topic = dll.searchWord(word);
+                    sink += topic == null ? 0 : topic.length();
+                }
+                return LOOKUPS;
+            });
+            measure("searchWord (repeated)", () -> {
+                for (int i = 0; i < LOOKUPS; i++) {
+                    // A small working set of words, answered from the query cache after the first lookup
+                    String topic = dll.searchWord(words[i % REPEATED_WORDS]);
+                    sink += topic == null ? 0 : topic.length();
+                }
+                return LOOKUPS;
+            });
+            measure("getWordsStartingWithLetter", () -> {
+                for (char letter = 'a'; letter <= 'z'; letter++) {
+                    sink += dll.getWordsStartingWithLetter(letter).size();
+                }
+                return 26;
+            });
+            measure("findWords (sequential)", () -> {
+                sink += dll.findWords(word -> word.indexOf('z') >= 0, false).size();
+                return size;
+            });
+            measure("findWords (parallel)", () -> {
+                sink += dll.findWords(word -> word.indexOf('z') >= 0, true).size();
+                return size;
+            });
+            measure("entryStream", () -> {
+                sink += dll.entryStream().toArray().length;
+                return size;
+            });
+            measure("parallelEntryStream", () -> {
+                sink += dll.parallelEntryStream().toArray().length;
+                return size;
+            });
+            measure("findTopic (scan)", () -> {
+                // No word matches, so every word is scanned
+                String topic = dll.findTopic(word -> word.indexOf('!') >= 0, false);
+                sink += topic == null ? 0 : topic.length();
+                return size;
+            });
+            measure("findTopic (array)", () -> {
+                String topic = array.findTopic(word -> word.indexOf('!') >= 0);
+                sink += topic == null ? 0 : topic.length();
+                return size;
+            });
+            measure("getTopics", () -> {
+                for (int i = 0; i < TRAVERSALS; i++) {
+                    sink += dll.getTopics().length;
+                }
+                return (long) TRAVERSALS * topics.length;
+            });
+            measure("getTopics (array)", () -> {
+                for (int i = 0; i < TRAVERSALS; i++) {
+                    sink += array.getTopics().length;
+                }
+                return (long) TRAVERSALS * topics.length;
+            });
+            measure("descendingIterator", () -> {
+                // Counts the topics without reading them, so that only the walk itself is measured
+                long count = 0;
+                for (int i = 0; i < TRAVERSALS; i++) {
+                    for (Iterator<String> iterator = dll.descendingIterator(); iterator.hasNext(); ) {
+                        count += iterator.next() != null ? 1 : 0;
+                    }
+                }
+                sink += count;
+                return (long) TRAVERSALS * topics.length;
+            });
+            measure("descendingIterator (array)", () -> {
+                // Counts the topics without reading them, so that only the walk itself is measured
+                long count = 0;
+                for (int i = 0; i < TRAVERSALS; i++) {
+                    for (Iterator<String> iterator = array.descendingIterator(); iterator.hasNext(); ) {
+                        count += iterator.next() != null ? 1 : 0;
+                    }
+                }
+                sink += count;
+                return (long) TRAVERSALS * topics.length;
+            });
+            measure("displayBackward", () -> {
+                PrintStream console = System.out;
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    dll.displayBackward();
+                } finally {
+                    System.setOut(console);
+                }
+                return topics.length;
+            });
+            measure("displayBackward (array)", () -> {
+                PrintStream console = System.out;
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    array.displayBackward();
+                } finally {
+                    System.setOut(console);
+                }
+                return topics.length;
+            });
+            measure("saveToFile", () -> {
+                PrintStream console = System.out;
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    dll.saveToFile(file.toString());
+                } finally {
+                    System.setOut(console);
+                }
+                return size;
+            });
+            measure("loadFromFile", () -> {
+                sink += VocabularyLoader.load(file.toString(), new OurDLinkedList(storage));
+                return size;
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Warms up and measures one benchmark, then prints the median time per operation.
+     *
+     * @param name      The name of the benchmark.
+     * @param benchmark The benchmark to measure.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void measure(String name, Case benchmark) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.setup();
+            benchmark.run();
+        }
+        double[] nanosPerOperation = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            benchmark.setup();
+            long start = System.nanoTime();
+            long operations = benchmark.run();
+            nanosPerOperation[i] = (double) (System.nanoTime() - start) / operations;
+        }
+        Arrays.sort(nanosPerOperation);
+        double median = nanosPerOperation[MEASURED_ITERATIONS / 2];
+        System.out.printf("%-28s %,12d %,16.1f %,16.0f%n", name, size, median, 1e9 / median);
+    }
+
+    /**
+     * Runs the benchmarks for each requested vocabulary size.
+     *
+     * @param args The vocabulary sizes in words, optionally followed by "--storage linked|unrolled|hashed|off_heap".
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+        ArrayList<Integer> sizes = new ArrayList<>();
+        WordStorage storage = WordStorage.LINKED;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--storage") && i + 1 < args.length) {
+                storage = WordStorage.valueOf(args[++i].toUpperCase());
+            } else {
+                sizes.add(Integer.parseInt(args[i].replace("_", "")));
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.addAll(Arrays.asList(1_000, 10_000, 100_000, 1_000_000, 10_000_000));
+        }
+        System.out.println("Java " + System.getProperty("java.version") + ", " + storage.name().toLowerCase() + " word storage, "
+                + WARMUP_ITERATIONS + " warmup and " + MEASURED_ITERATIONS + " measured iterations");
+        System.out.printf("%-28s %12s %16s %16s%n", "Benchmark", "Words", "ns/op (median)", "ops/s");
+        for (int size : sizes) {
+            new Benchmark(size, storage).runAll();
+        }
+    }
+}
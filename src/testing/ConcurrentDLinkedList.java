@@ -0,0 +1,342 @@
+package testing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Represents a thread-safe vocabulary of topics and words, backed by an {@link OurDLinkedList}.
+ * <p>
+ * Two levels of read-write locks are used:
+ * <ul>
+ * <li>a structure lock, taken for writing by operations adding or removing topics, and for reading by all other operations;</li>
+ * <li>a set of striped locks, one of which guards the words of each topic, chosen from the topic name.</li>
+ * </ul>
+ * Readers never block each other, and changing the words of a topic only blocks the operations using topics of the same stripe.
+ * Word searches and prefix queries read the concurrent word indexes under the structure read lock only.
+ */
+public class ConcurrentDLinkedList {
+
+    /** Number of striped locks guarding the words of the topics. */
+    private static final int STRIPES = 64;
+
+    private final OurDLinkedList dll;
+    private final ReentrantReadWriteLock structureLock;
+    private final ReentrantReadWriteLock[] stripes;
+
+    /**
+     * Constructs an empty thread-safe vocabulary storing its words in linked lists.
+     */
+    public ConcurrentDLinkedList() {
+        this(WordStorage.LINKED);
+    }
+
+    /**
+     * Constructs an empty thread-safe vocabulary whose topics store their words as specified.
+     *
+     * @param storage How the words of each topic are stored.
+     */
+    public ConcurrentDLinkedList(WordStorage storage) {
+        dll = new OurDLinkedList(storage, true);
+        structureLock = new ReentrantReadWriteLock();
+        stripes = new ReentrantReadWriteLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    // Structural operations, exclusive
+
+    /**
+     * Adds a new topic with the given words at the tail of the vocabulary.
+     *
+     * @param topic The topic to be added.
+     * @param words The words of the new topic, in order.
+     */
+    public void appendTopic(String topic, Collection<String> words) {
+        Lock lock = structureLock.writeLock();
+        lock.lock();
+        try {
+            dll.appendTopic(topic, words);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads a vocabulary file, a text file or a snapshot, appending its topics at the tail.
+     *
+     * @param fileName The name of the file to load.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    public int load(String fileName) throws IOException {
+        Lock lock = structureLock.writeLock();
+        lock.lock();
+        try {
+            if (VocabularySnapshot.isSnapshot(fileName)) {
+                return dll.loadSnapshot(fileName);
+            }
+            return VocabularyLoader.load(fileName, dll);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a new topic with the given words before an existing topic.
+     *
+     * @param referenceTopic The topic before which the new topic is to be added.
+     * @param newTopic       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    public boolean addBefore(String referenceTopic, String newTopic, Collection<String> words) {
+        Lock lock = structureLock.writeLock();
+        lock.lock();
+        try {
+            return dll.addBefore(referenceTopic, newTopic, words);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a new topic with the given words after an existing topic.
+     *
+     * @param referenceTopic The topic after which the new topic is to be added.
+     * @param newTopic       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    public boolean addAfter(String referenceTopic, String newTopic, Collection<String> words) {
+        Lock lock = structureLock.writeLock();
+        lock.lock();
+        try {
+            return dll.addAfter(referenceTopic, newTopic, words);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a topic, with its words, from the vocabulary.
+     *
+     * @param topic The topic to be removed.
+     * @return The removed topic, or null if the topic was not found.
+     */
+    public String removeValue(String topic) {
+        Lock lock = structureLock.writeLock();
+        lock.lock();
+        try {
+            return dll.removeValue(topic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Word operations, exclusive for the topic's stripe only
+
+    /**
+     * Adds a word at the beginning of the words of a topic.
+     *
+     * @param topic The topic to which the word is to be added.
+     * @param word  The word to be added.
+     * @return true if the word was added, false if the topic was not found.
+     */
+    public boolean addWord(String topic, String word) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        Lock stripe = stripeFor(topic).writeLock();
+        stripe.lock();
+        try {
+            return dll.addWordToTopic(topic, word);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a word of a topic, keeping its position.
+     *
+     * @param topic   The topic in which the word is to be replaced.
+     * @param oldWord The word to be replaced.
+     * @param newWord The word replacing it.
+     * @return true if the word was replaced, false if the topic or the old word was not found.
+     */
+    public boolean modifyWord(String topic, String oldWord, String newWord) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        Lock stripe = stripeFor(topic).writeLock();
+        stripe.lock();
+        try {
+            return dll.replaceWord(topic, oldWord, newWord);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the first occurrence of a word from a topic.
+     *
+     * @param topic The topic from which the word is to be removed.
+     * @param word  The word to be removed.
+     * @return true if the word was removed, false if the topic or the word was not found.
+     */
+    public boolean removeWord(String topic, String word) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        Lock stripe = stripeFor(topic).writeLock();
+        stripe.lock();
+        try {
+            return dll.removeWordFromTopic(topic, word);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    // Read operations, shared
+
+    /**
+     * Retrieves a copy of the words of a topic.
+     *
+     * @param topic The topic whose words are to be retrieved.
+     * @return The words of the topic in order, or null if the topic was not found.
+     */
+    public ArrayList<String> getWords(String topic) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        Lock stripe = stripeFor(topic).readLock();
+        stripe.lock();
+        try {
+            WordList words = dll.getWordsForTopic(topic);
+            if (words == null) {
+                return null;
+            }
+            ArrayList<String> copy = new ArrayList<>(words.getSize());
+            for (String word : words) {
+                copy.add(word);
+            }
+            return copy;
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Displays the content of a topic.
+     *
+     * @param topic The topic for which to display the content.
+     * @see OurDLinkedList#displayTopicContent(String)
+     */
+    public void displayTopicContent(String topic) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        Lock stripe = stripeFor(topic).readLock();
+        stripe.lock();
+        try {
+            dll.displayTopicContent(topic);
+        } finally {
+            stripe.unlock();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Searches for a word, ignoring case, and returns the first topic containing it.
+     *
+     * @param word The word to search for.
+     * @return The topic containing the word, or null if the word is not found.
+     * @see OurDLinkedList#searchWord(String)
+     */
+    public String searchWord(String word) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        try {
+            return dll.searchWord(word);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Searches for a word, ignoring case, and returns every topic containing it.
+     *
+     * @param word The word to search for.
+     * @return The topics containing the word, in order.
+     * @see OurDLinkedList#searchWordTopics(String)
+     */
+    public ArrayList<String> searchWordTopics(String word) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        try {
+            return dll.searchWordTopics(word);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves every word starting with the specified prefix, in alphabetical order.
+     *
+     * @param prefix The prefix of the words to retrieve.
+     * @return The matching words, sorted alphabetically.
+     * @see OurDLinkedList#getWordsWithPrefix(String)
+     */
+    public ArrayList<String> getWordsWithPrefix(String prefix) {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        try {
+            return dll.getWordsWithPrefix(prefix);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the topics of the vocabulary, in order.
+     *
+     * @return An array containing the topics.
+     */
+    public String[] getTopics() {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        try {
+            return dll.getTopics();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the number of topics of the vocabulary.
+     *
+     * @return The number of topics.
+     */
+    public int getSize() {
+        Lock lock = structureLock.readLock();
+        lock.lock();
+        try {
+            return dll.getSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the lock guarding the words of a topic.
+     *
+     * @param topic The topic.
+     * @return The striped lock of the topic.
+     */
+    private ReentrantReadWriteLock stripeFor(String topic) {
+        int hash = topic.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
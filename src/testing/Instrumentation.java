@@ -0,0 +1,251 @@
+package testing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Measures the vocabulary operations: how long they take and how many nodes or words they go through.
+ * <p>
+ * Instrumentation is off by default, and then costs one flag check per operation. It is turned on
+ * from the menu, with the "--instrument" option of {@link Menu#main(String[])}, or with the system property
+ * "vocabulary.instrumentation=true". While it is on, every operation updates an in-process latency histogram and
+ * traversal counters, and emits a "testing.VocabularyOperation" event to JDK Flight Recorder when a recording is running,
+ * for example with:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=vocabulary.jfr -m Assignment3/testing.Menu --instrument
+ * </pre>
+ * An operation is measured by calling {@link #start()} before it and {@link #record(Operation, long, long)} after it.
+ */
+public final class Instrumentation {
+
+    /** Value returned by {@link #start()} when instrumentation is off. */
+    private static final long OFF = Long.MIN_VALUE;
+    /** Number of latency buckets, one per power of two of nanoseconds. */
+    private static final int BUCKETS = 64;
+
+    private static volatile boolean enabled = Boolean.getBoolean("vocabulary.instrumentation");
+
+    private static final Statistics[] STATISTICS = new Statistics[Operation.values().length];
+
+    static {
+        for (Operation operation : Operation.values()) {
+            STATISTICS[operation.ordinal()] = new Statistics();
+        }
+    }
+
+    /**
+     * Represents the kinds of operations measured.
+     */
+    public enum Operation {
+        /** Finding a topic by name. */
+        TOPIC_LOOKUP("topic lookup"),
+        /** Adding a topic. */
+        TOPIC_INSERT("topic insert"),
+        /** Removing a topic. */
+        TOPIC_REMOVE("topic remove"),
+        /** Adding a word to a word list. */
+        WORD_INSERT("word insert"),
+        /** Removing a word from a word list. */
+        WORD_REMOVE("word remove"),
+        /** Replacing a word of a word list. */
+        WORD_REPLACE("word replace"),
+        /** Searching the topics containing a word. */
+        SEARCH_WORD("search word"),
+        /** Listing the words starting with a letter or a prefix. */
+        PREFIX_QUERY("prefix query"),
+        /** Scanning every word for a condition. */
+        WORD_SCAN("word scan"),
+        /** Saving the vocabulary to a file. */
+        SAVE("save"),
+        /** Loading a vocabulary file. */
+        LOAD("load");
+
+        private final String label;
+
+        /**
+         * Constructs an operation kind with the given label.
+         *
+         * @param label The name of the operation in reports.
+         */
+        Operation(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Retrieves the name of the operation in reports.
+         *
+         * @return The label of the operation.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Prevents instantiation, all members are static.
+     */
+    private Instrumentation() {
+    }
+
+    /**
+     * Checks whether operations are being measured.
+     *
+     * @return true if instrumentation is on.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns instrumentation on or off. The statistics gathered so far are kept.
+     *
+     * @param on Whether operations are to be measured.
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Marks the start of an operation.
+     *
+     * @return The start time to pass to {@link #record(Operation, long, long)}.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Records the end of an operation. Does nothing if instrumentation was off when the operation started.
+     *
+     * @param operation The kind of operation.
+     * @param start     The value returned by {@link #start()} when the operation started.
+     * @param traversed The number of nodes or words the operation went through.
+     */
+    public static void record(Operation operation, long start, long traversed) {
+        if (start == OFF) {
+            return;
+        }
+        long latency = System.nanoTime() - start;
+        STATISTICS[operation.ordinal()].add(latency, traversed);
+        OperationEvent event = new OperationEvent();
+        if (event.shouldCommit()) {
+            event.operation = operation.getLabel();
+            event.latency = latency;
+            event.traversed = traversed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Forgets the statistics gathered so far.
+     */
+    public static void reset() {
+        for (int i = 0; i < STATISTICS.length; i++) {
+            STATISTICS[i] = new Statistics();
+        }
+    }
+
+    /**
+     * Prints one line of statistics per operation measured so far: count, mean, median,
+     * 99th percentile and maximum latency, and mean and maximum number of nodes traversed.
+     * Percentiles are upper bounds, rounded up to a power of two of nanoseconds.
+     */
+    public static void printStatistics() {
+        System.out.println("Instrumentation is " + (enabled ? "on" : "off") + ".");
+        System.out.printf("%-14s %10s %12s %12s %12s %12s %14s %12s%n", "Operation", "Count",
+                "Mean (us)", "p50 (us)", "p99 (us)", "Max (us)", "Mean traversed", "Max traversed");
+        boolean any = false;
+        for (Operation operation : Operation.values()) {
+            Statistics statistics = STATISTICS[operation.ordinal()];
+            long count = statistics.count.sum();
+            if (count == 0) {
+                continue;
+            }
+            any = true;
+            System.out.printf("%-14s %,10d %,12.1f %,12.1f %,12.1f %,12.1f %,14.1f %,12d%n", operation.getLabel(), count,
+                    statistics.totalNanos.sum() / 1e3 / count, statistics.percentile(0.50) / 1e3,
+                    statistics.percentile(0.99) / 1e3, statistics.maxNanos.get() / 1e3,
+                    (double) statistics.totalTraversed.sum() / count, statistics.maxTraversed.get());
+        }
+        if (!any) {
+            System.out.println("No operation measured yet.");
+        }
+    }
+
+    /**
+     * Represents the statistics of one kind of operation. Safe for concurrent updates.
+     */
+    private static class Statistics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder totalTraversed = new LongAdder();
+        private final AtomicLong maxTraversed = new AtomicLong();
+        /** Number of operations per latency bucket, bucket i counting latencies below 2^i nanoseconds. */
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        /**
+         * Adds a measured operation.
+         *
+         * @param latency   The duration of the operation, in nanoseconds.
+         * @param traversed The number of nodes or words the operation went through.
+         */
+        public void add(long latency, long traversed) {
+            count.increment();
+            totalNanos.add(latency);
+            maxNanos.accumulateAndGet(latency, Math::max);
+            totalTraversed.add(traversed);
+            maxTraversed.accumulateAndGet(traversed, Math::max);
+            histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, latency))));
+        }
+
+        /**
+         * Retrieves an upper bound of a latency percentile from the histogram.
+         *
+         * @param fraction The percentile, between 0 and 1.
+         * @return The upper bound of the bucket holding the percentile, in nanoseconds.
+         */
+        public double percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += histogram.get(i);
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram.get(i);
+                if (seen >= rank) {
+                    return Math.min(Math.pow(2, i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+
+    /**
+     * Represents the Flight Recorder event emitted for each measured operation.
+     */
+    @Name("testing.VocabularyOperation")
+    @Label("Vocabulary Operation")
+    @Category("Vocabulary")
+    @StackTrace(false)
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Nodes Traversed")
+        long traversed;
+    }
+}
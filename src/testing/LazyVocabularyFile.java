@@ -0,0 +1,204 @@
+package testing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Locates the topics of a vocabulary file in the "#topic" format, so that the words of each topic
+ * can later be read on their own.
+ * <p>
+ * Scanning the file reads it once, keeping only the topic names and the byte range of the words of each topic,
+ * so the memory used does not depend on the number of words. The words of a topic are read on request with a single
+ * positioned read of its range. The lines are read as {@link VocabularyLoader} reads them: trimmed, with empty lines
+ * and the lines before the first topic skipped.
+ * <p>
+ * The file must not change while its topics are read: a read fails if the size or the modification time of the file
+ * differ from the ones seen by the scan.
+ */
+class LazyVocabularyFile {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final long size;
+    private final FileTime modified;
+    private final ArrayList<String> topics;
+    /** Offset of the first byte of the words of each topic. */
+    private long[] starts;
+    /** Offset after the last byte of the words of each topic. */
+    private long[] ends;
+
+    /**
+     * Constructs the index of a file that has not been scanned yet.
+     *
+     * @param path       The path of the file.
+     * @param attributes The attributes of the file when the scan starts.
+     */
+    private LazyVocabularyFile(Path path, BasicFileAttributes attributes) {
+        this.path = path;
+        this.size = attributes.size();
+        this.modified = attributes.lastModifiedTime();
+        this.topics = new ArrayList<>();
+        this.starts = new long[16];
+        this.ends = new long[16];
+    }
+
+    /**
+     * Scans a vocabulary file and records where the words of each of its topics are.
+     *
+     * @param fileName The name of the file to scan.
+     * @return The index of the topics of the file.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    static LazyVocabularyFile scan(String fileName) throws IOException {
+        Path path = Path.of(fileName).toAbsolutePath();
+        LazyVocabularyFile file = new LazyVocabularyFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+        file.scan();
+        return file;
+    }
+
+    /**
+     * Reads the file once, recording each topic line and the range of the lines following it.
+     *
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    private void scan() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteArrayOutputStream topicLine = new ByteArrayOutputStream();
+        // Whether the current line is blank so far, and whether it is a topic line
+        boolean blank = true;
+        boolean topicStarted = false;
+        long lineStart = 0;
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        if (topicStarted) {
+                            addTopic(topicLine, lineStart, position + 1);
+                        }
+                        blank = true;
+                        topicStarted = false;
+                        lineStart = position + 1;
+                    } else if (topicStarted) {
+                        topicLine.write(b);
+                    } else if (blank && (b & 0xFF) > ' ') {
+                        blank = false;
+                        topicStarted = b == '#';
+                    }
+                    position++;
+                }
+                buffer.clear();
+            }
+        }
+        if (topicStarted) {
+            addTopic(topicLine, lineStart, position);
+        }
+        if (!topics.isEmpty()) {
+            ends[topics.size() - 1] = position;
+        }
+    }
+
+    /**
+     * Records a topic line, which also ends the words of the previous topic.
+     *
+     * @param topicLine The bytes of the line after the '#', cleared once read.
+     * @param lineStart The offset of the start of the topic line.
+     * @param wordStart The offset of the line following the topic line.
+     */
+    private void addTopic(ByteArrayOutputStream topicLine, long lineStart, long wordStart) {
+        int count = topics.size();
+        if (count > 0) {
+            ends[count - 1] = lineStart;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        topics.add(new String(topicLine.toByteArray(), StandardCharsets.UTF_8).trim());
+        starts[count] = wordStart;
+        ends[count] = wordStart;
+        topicLine.reset();
+    }
+
+    /**
+     * Retrieves the number of topics of the file.
+     *
+     * @return The number of topics.
+     */
+    int getTopicCount() {
+        return topics.size();
+    }
+
+    /**
+     * Retrieves the name of a topic of the file.
+     *
+     * @param index The index of the topic, in file order.
+     * @return The name of the topic.
+     */
+    String getTopic(int index) {
+        return topics.get(index);
+    }
+
+    /**
+     * Retrieves the name of the file.
+     *
+     * @return The path of the file.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Reads the words of a topic of the file.
+     *
+     * @param index The index of the topic, in file order.
+     * @return The words of the topic, in order.
+     * @throws IOException if an I/O error occurs, or if the file changed since it was scanned.
+     */
+    ArrayList<String> readWords(int index) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() != size || !attributes.lastModifiedTime().equals(modified)) {
+            throw new IOException(path + " changed since it was loaded");
+        }
+        long length = ends[index] - starts[index];
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("The words of topic '" + topics.get(index) + "' are too large to be read at once");
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, starts[index] + bytes.position()) < 0) {
+                    throw new IOException(path + " changed since it was loaded");
+                }
+            }
+        }
+        String text = new String(bytes.array(), StandardCharsets.UTF_8);
+        ArrayList<String> words = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            String word = text.substring(lineStart, lineEnd).trim();
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return words;
+    }
+}
@@ -1,10 +1,14 @@
 package testing;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
+
+import testing.Instrumentation.Operation;
 /**
  * Represents a menu for interacting with a doubly linked list of topics and a linked list of words.
  * Allows users to perform various operations on the lists.
@@ -13,12 +17,29 @@ public class Menu {
     private OurDLinkedList dll;
     private OurLinkedList sll;
     private Scanner scanner;
+    /** Number of topics listed per page by {@link #browseTopics()}. */
+    private static final int TOPIC_PAGE_SIZE = 20;
+    /** Number of words displayed per page by {@link #browseWords(int)}. */
+    private static final int WORD_PAGE_SIZE = 100;
+    /** Whether text files are loaded lazily, see {@link OurDLinkedList#loadLazily(String, int)}. */
+    private boolean lazy;
+    /** The maximum number of lazily loaded topics kept in memory, 0 for no limit. */
+    private int maxLoadedTopics;
     /**
      * Constructs a new Menu object.
      * Initializes a doubly linked list for topics (dll), a linked list for words (sll), and a scanner for user input.
      */
     public Menu() {
-        dll = new OurDLinkedList();
+        this(WordStorage.LINKED);
+    }
+
+    /**
+     * Constructs a new Menu object whose topics store their words as specified.
+     *
+     * @param storage How the words of each topic are stored.
+     */
+    public Menu(WordStorage storage) {
+        dll = new OurDLinkedList(storage);
         sll = new OurLinkedList();
         scanner = new Scanner(System.in);
     }
@@ -44,6 +65,8 @@ public class Menu {
         System.out.println("7. Load from a file");
         System.out.println("8. Show all words starting with a certain letter");
         System.out.println("9. Save to file");
+        System.out.println("10. Save a binary snapshot");
+        System.out.println("11. Show operation statistics");
 
         System.out.println("0. Exit");
 
@@ -57,33 +80,34 @@ public class Menu {
      * Topics are identified by lines starting with "#" symbol, and words are added under their respective topics.
      * Words are added to a singly linked list (SLL) associated with each topic in the doubly linked list (DLL).
      * Leading and trailing whitespace in each line are trimmed before processing.
-     * 
-     * @throws IOException if an I/O error occurs while reading the input file.
+     * Large files are parsed in parallel by {@link VocabularyLoader#load(String, TopicList)}.
+     * Binary snapshots written by {@link #saveSnapshot()} are recognized and loaded directly.
+     * A directory, or several file names separated by commas, is loaded by {@link VocabularyIngest}, which reads the files
+     * concurrently, merges the topics that appear more than once and prints the throughput of each file.
      */
     
     private void loadFromFile() {
-        System.out.print("Enter the name of the input file: ");
-        String fileName = scanner.nextLine();
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            String currentTopic = null;
-
-            while ((line = br.readLine()) != null) {
-                line = line.trim(); // Remove leading and trailing whitespace
-                if (line.isEmpty()) {
-                    continue; // Skip empty lines
-                }
-                if (line.startsWith("#")) {
-                    currentTopic = line.substring(1).trim();
-                    dll.addAtTail(currentTopic); // Add the topic to the DLL
-                } else if (currentTopic != null) {
-                    // Add the word to the SLL under the current topic
-                    OurLinkedList topicWords = dll.getWordsForTopic(currentTopic);
-                    if (topicWords != null) {
-                        topicWords.addAtEnd(line);
+        System.out.print("Enter the name of the input file or directory: ");
+        String fileName = scanner.nextLine().trim();
+        try {
+            long start = Instrumentation.start();
+            int topicCount;
+            if (Files.isDirectory(Path.of(fileName)) || fileName.contains(",")) {
+                List<String> fileNames = new ArrayList<>();
+                for (String name : fileName.split(",")) {
+                    if (!name.isBlank()) {
+                        fileNames.addAll(VocabularyIngest.listFiles(name.trim()));
                     }
                 }
+                VocabularyIngest.Result result = new VocabularyIngest().ingest(fileNames, dll);
+                result.print();
+                topicCount = result.getTopicsAdded();
+            } else if (VocabularySnapshot.isSnapshot(fileName)) {
+                topicCount = dll.loadSnapshot(fileName);
+            } else {
+                topicCount = lazy ? dll.loadLazily(fileName, maxLoadedTopics) : VocabularyLoader.load(fileName, dll);
             }
+            Instrumentation.record(Operation.LOAD, start, topicCount);
             System.out.println("\nDone loading.");
         } catch (IOException e) {
             System.out.println("Error loading from file: " + e.getMessage());
@@ -113,11 +137,16 @@ public class Menu {
         System.out.println("\nEnter the topic before which you want to insert a new topic:");
         String referenceTopic = scanner.nextLine();
 
+        if (dll.getWordsForTopic(referenceTopic) == null) {
+            System.out.println("Topic not found.");
+            return;
+        }
+
         System.out.println("Enter the new topic to insert:");
         String newTopic = scanner.nextLine();
 
         // Call the addBefore method of OurDLinkedList
-        dll.addBefore(referenceTopic, newTopic);
+        dll.addBefore(referenceTopic, newTopic, promptWords(newTopic));
 
         System.out.println("New topic inserted successfully.");
     }
@@ -132,14 +161,36 @@ public class Menu {
         System.out.println("\nEnter the topic before which you want to insert a new topic:");
         String referenceTopic = scanner.nextLine();
 
+        if (dll.getWordsForTopic(referenceTopic) == null) {
+            System.out.println("Topic not found.");
+            return;
+        }
+
         System.out.println("Enter the new topic to insert:");
         String newTopic = scanner.nextLine();
 
         // Call the addAfter method of OurDLinkedList
-        dll.addAfter(referenceTopic, newTopic);
+        dll.addAfter(referenceTopic, newTopic, promptWords(newTopic));
 
         System.out.println("New topic inserted successfully.");
     }
+
+    /**
+     * Prompts the user to enter the words of a new topic, one per line, until a blank line.
+     *
+     * @param topic The topic the words are entered for.
+     * @return The words entered, in order.
+     */
+    private ArrayList<String> promptWords(String topic) {
+        ArrayList<String> words = new ArrayList<>();
+        System.out.println("Enter words for the topic '" + topic + "'. Enter blank line to finish:");
+        String word = scanner.nextLine().trim();
+        while (!word.isEmpty()) {
+            words.add(word);
+            word = scanner.nextLine().trim();
+        }
+        return words;
+    }
 //    private void addBeforeToDoublyLinkedList() {
 //        System.out.print("Enter value to add to doubly linked list: ");
 //        String value = scanner.nextLine();
@@ -190,39 +241,85 @@ public class Menu {
 //    }
     
     /**
-     * Displays a list of topics stored in the doubly linked list and prompts the user to pick a topic.
-     * Once the user selects a topic, the method displays the content of the chosen topic.
-     * It prints a numbered list of topics retrieved from the {@link OurDLinkedList#getTopics()} method,
-     * allowing the user to select a topic by entering the corresponding number.
-     * After the user makes a choice, the method calls {@link OurDLinkedList#displayTopicContent(String)}
-     * to display the content of the chosen topic.
+     * Displays the topics stored in the doubly linked list one page at a time and prompts the user to pick a topic.
+     * Each page lists {@link #TOPIC_PAGE_SIZE} topics from {@link OurDLinkedList#getTopicPage(int, int)},
+     * numbered from the start of the list. The user may go to the next or previous page, or pick any topic by number,
+     * shown or not, which {@link OurDLinkedList#getTopicAt(int)} finds without walking the list.
+     * Once the user selects a topic, its words are displayed one page at a time with {@link #browseWords(int)}.
      * If the user selects "0" to exit, the program terminates.
      */
     public void browseTopics() {
-        System.out.println("\n-------------------------------");
-        System.out.println("Pick a topic");
-        System.out.println("-------------------------------");
-        String[] topics = dll.getTopics();
-        for (int i = 0; i < topics.length; i++) {
-            System.out.println((i + 1) + ". " + topics[i]);
-            
-            	
+        Page page = dll.getTopicPage(0, TOPIC_PAGE_SIZE);
+        while (true) {
+            PrintWriter out = OurDLinkedList.bufferedConsole();
+            out.println("\n-------------------------------");
+            out.println("Pick a topic");
+            out.println("-------------------------------");
+            List<String> topics = page.getItems();
+            for (int i = 0; i < topics.size(); i++) {
+                out.println((page.getStart() + i + 1) + ". " + topics.get(i));
+            }
+            if (page.hasMore()) {
+                out.println("n. Next topics");
+            }
+            if (page.getStart() > 0) {
+                out.println("p. Previous topics");
+            }
+            out.println("0. Exit");
+            out.println("-------------------------------");
+            out.print("Enter your choice: ");
+            out.flush();
+            String input = scanner.nextLine().trim();
+            if (input.equals("n") && page.hasMore()) {
+                page = page.next();
+                continue;
+            }
+            if (input.equals("p") && page.getStart() > 0) {
+                page = dll.getTopicPage(Math.max(0, page.getStart() - TOPIC_PAGE_SIZE), TOPIC_PAGE_SIZE);
+                continue;
+            }
+            int choice = Integer.parseInt(input);
+            if (choice >= 1 && choice <= dll.getSize()) {
+                browseWords(choice - 1);
+            } else if (choice == 0) {
+                System.out.println("Exiting...");
+                System.exit(0);
+            } else {
+                System.out.println("Invalid choice. Please try again.");
+            }
+            return;
         }
-        System.out.println("0. Exit");
-        System.out.println("-------------------------------");
-        System.out.print("Enter your choice: ");
-        int choice = Integer.parseInt(scanner.nextLine());
-        
-        if (choice >= 1 && choice <= topics.length) {
-            String chosenTopic = topics[choice - 1];
-            dll.displayTopicContent(chosenTopic);
-        } else if (choice == 0) {
-            System.out.println("Exiting...");
-            System.exit(0);
-        } else {
-            System.out.println("Invalid choice. Please try again.");
+    }
+
+    /**
+     * Displays the words of a topic one page of {@link #WORD_PAGE_SIZE} words at a time,
+     * letting the user go on to the next page or stop.
+     *
+     * @param index The position of the topic whose words are displayed, from 0.
+     */
+    private void browseWords(int index) {
+        String topic = dll.getTopicAt(index);
+        Page page = dll.getWordPage(index, WORD_PAGE_SIZE);
+        System.out.println("\nContent of topic '" + topic + "' (" + page.getTotal() + " word(s)):\n");
+        if (page.getItems().isEmpty()) {
+            System.out.println("No content available for this topic.");
+            return;
         }
+        while (true) {
+            PrintWriter out = OurDLinkedList.bufferedConsole();
+            OurDLinkedList.printWords(page.getItems(), page.getStart(), out);
+            out.println();
+            out.flush();
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.print("Enter n for the next words, anything else to go back: ");
+            if (!scanner.nextLine().trim().equals("n")) {
+                return;
+            }
+            page = page.next();
         }
+    }
         // Handle the user's choice accordingly
         // You might want to add validation here to ensure the user's choice is within the valid range
     
@@ -245,6 +342,50 @@ public class Menu {
     	String filename = scanner.nextLine();
     	dll.saveToFile(filename);
     }
+    /**
+     * Prompts the user to enter a filename and saves the content of the doubly linked list to it as a binary snapshot.
+     * The snapshot can be loaded back with the "Load from a file" option.
+     * If the file cannot be saved due to an error, an appropriate error message is displayed.
+     */
+    public void saveSnapshot() {
+        System.out.println("Enter the filename to save the snapshot to: ");
+        String filename = scanner.nextLine();
+        try {
+            int wordCount = dll.saveSnapshot(filename);
+            System.out.println("Saved " + dll.getSize() + " topic(s) and " + wordCount + " word(s) to snapshot: " + filename);
+        } catch (IOException e) {
+            System.out.println("An error occurred while saving the snapshot: " + e.getMessage());
+        }
+    }
+    /**
+     * Displays the statistics gathered on the operations and on the query cache, then lets the user turn the instrumentation on or off,
+     * or clear the statistics.
+     *
+     * @see Instrumentation
+     */
+    public void showStatistics() {
+        Instrumentation.printStatistics();
+        dll.getQueryCache().printStatistics();
+        WordPool.printStatistics();
+        System.out.println("t. Turn instrumentation " + (Instrumentation.isEnabled() ? "off" : "on"));
+        System.out.println("r. Reset the statistics");
+        System.out.println("0. Back");
+        System.out.print("Enter your choice: ");
+        switch (scanner.nextLine().trim()) {
+            case "t":
+                Instrumentation.setEnabled(!Instrumentation.isEnabled());
+                System.out.println("Instrumentation is now " + (Instrumentation.isEnabled() ? "on" : "off") + ".");
+                break;
+            case "r":
+                Instrumentation.reset();
+                dll.getQueryCache().resetStatistics();
+                WordPool.resetStatistics();
+                System.out.println("Statistics cleared.");
+                break;
+            default:
+                break;
+        }
+    }
     /**
      * Prompts the user to enter the topic they want to remove.
      * The method reads the topic name from the console input and calls the {@link OurDLinkedList#removeValue(String)} method
@@ -267,7 +408,7 @@ public class Menu {
      * Displays all the words in the doubly linked list that start with the specified letter.
      * The method first converts the input letter to a char and then calls the {@link OurDLinkedList#getWordsStartingWithLetter(char)}
      * method of the doubly linked list to retrieve all words starting with the specified letter.
-     * If such words exist, they are sorted alphabetically and printed to the console.
+     * If such words exist, they are printed to the console in the alphabetical order they are returned in.
      * If no words are found, a message indicating that no words were found starting with the specified letter is displayed.
      *
      * @param letter The letter to search for words starting with.
@@ -278,8 +419,6 @@ public class Menu {
         // Get all words starting with the specified letter
         ArrayList<String> words = dll.getWordsStartingWithLetter(firstLetter);
         if (words != null && !words.isEmpty()) {
-            // Sort the words
-            Collections.sort(words);
             // Print the sorted words
             System.out.println("Words starting with '" + firstLetter + "':");
             for (String word : words) {
@@ -295,19 +434,21 @@ public class Menu {
     /**
      * Prompts the user to enter a word and searches for it in the vocabulary.
      * The method reads the word from the console input, trims leading and trailing whitespace,
-     * and then calls the {@link OurDLinkedList#searchWord(String)} method of the doubly linked list
-     * to find the topic associated with the word.
-     * If the word is found, the topic it belongs to is printed to the console.
+     * and then calls the {@link OurDLinkedList#searchWordTopics(String)} method of the doubly linked list
+     * to find the topics associated with the word.
+     * If the word is found, the topics it belongs to are printed to the console.
      * If the word is not found, a message indicating that the word was not found is displayed.
      */
     public void searchWord() {
         System.out.print("Enter the word to search: ");
         String word = scanner.nextLine().trim();
 
-        String topicOfWord = dll.searchWord(word);
+        ArrayList<String> topicsOfWord = dll.searchWordTopics(word);
 
-        if (topicOfWord != null) {
-            System.out.println("Word '" + word + "' found in topic: " + topicOfWord);
+        if (topicsOfWord.size() == 1) {
+            System.out.println("Word '" + word + "' found in topic: " + topicsOfWord.get(0));
+        } else if (!topicsOfWord.isEmpty()) {
+            System.out.println("Word '" + word + "' found in topics: " + String.join(", ", topicsOfWord));
         } else {
             System.out.println("Word '" + word + "' not found.");
         }
@@ -335,16 +476,37 @@ public class Menu {
         System.out.print("Enter your choice: ");
         String choice = scanner.nextLine();
 
+        if (!choice.equals("0") && dll.getWordsForTopic(topicToModify) == null) {
+            System.out.println("Topic '" + topicToModify + "' not found.");
+            return;
+        }
+
         switch (choice) {
-            case "a":
-                dll.addWordToTopic(topicToModify);
+            case "a": {
+                System.out.println("Enter a word for the topic '" + topicToModify + "':");
+                String word = scanner.nextLine().trim();
+                dll.addWordToTopic(topicToModify, word);
+                System.out.println("Word '" + word + "' added to the topic '" + topicToModify + "'.");
+                break;
+            }
+            case "r": {
+                System.out.println("Enter the word to remove from the topic '" + topicToModify + "':");
+                String word = scanner.nextLine().trim();
+                if (dll.removeWordFromTopic(topicToModify, word)) {
+                    System.out.println("Word '" + word + "' removed from the topic '" + topicToModify + "'.");
+                } else {
+                    System.out.println("Word '" + word + "' not found in topic '" + topicToModify + "'.");
+                }
+                break;
+            }
+            case "c": {
+                System.out.println("Enter the word to change:");
+                String oldWord = scanner.nextLine().trim();
+                System.out.println("Enter the new word:");
+                String newWord = scanner.nextLine().trim();
+                dll.modifyWordNode(topicToModify, oldWord, newWord);
                 break;
-//            case "r":
-//                removeWordFromTopic(topicToModify);
-//                break;
-//            case "c":
-//            	modifyWordNode(topicToModify);
-//                break;
+            }
             case "0":
                 System.out.println("Exiting...");
                 break;
@@ -361,10 +523,87 @@ public class Menu {
      * The user input is validated to ensure it corresponds to a valid menu option,
      * and appropriate actions are taken based on the chosen option.
      * 
-     * @param args The command line arguments (not used in this application)
+     * @param args The command line arguments: "--storage linked" (default), "--storage unrolled",
+     *             "--storage hashed" or "--storage off_heap" selects how the words of each topic are stored, and "--batch file" runs the commands
+     *             of the file with {@link BatchRunner} and exits instead of showing the menu.
+     *             "--instrument" turns on the measurement of operations, see {@link Instrumentation}.
+     *             "--store directory" loads the vocabulary stored in the directory and records every following
+     *             change there, see {@link VocabularyJournal}.
+     *             "--lazy" loads text files lazily, reading the words of a topic on first access; it may be followed
+     *             by the maximum number of topics whose words are kept in memory.
+     *             "--topics array" runs the batch on an {@link ArrayTopicList} instead of an {@link OurDLinkedList};
+     *             it only applies to "--batch" without "--store", since the menu relies on the pages, lazy loading
+     *             and journal of the doubly linked list.
      */
     public static void main(String[] args) {
-        Menu menu = new Menu();
+        WordStorage storage = WordStorage.LINKED;
+        TopicStorage topicStorage = TopicStorage.LINKED;
+        String batchFile = null;
+        String storeDirectory = null;
+        boolean lazy = false;
+        int maxLoadedTopics = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--storage") && i + 1 < args.length) {
+                try {
+                    storage = WordStorage.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown storage '" + args[i] + "', using " + storage.name().toLowerCase() + ".");
+                }
+            } else if (args[i].equals("--topics") && i + 1 < args.length) {
+                try {
+                    topicStorage = TopicStorage.valueOf(args[++i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Unknown topic storage '" + args[i] + "', using " + topicStorage.name().toLowerCase() + ".");
+                }
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batchFile = args[++i];
+            } else if (args[i].equals("--instrument")) {
+                Instrumentation.setEnabled(true);
+            } else if (args[i].equals("--store") && i + 1 < args.length) {
+                storeDirectory = args[++i];
+            } else if (args[i].equals("--lazy")) {
+                lazy = true;
+                if (i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                    maxLoadedTopics = Integer.parseInt(args[++i]);
+                }
+            }
+        }
+        if (topicStorage != TopicStorage.LINKED && (batchFile == null || storeDirectory != null)) {
+            System.out.println("The " + topicStorage.name().toLowerCase() + " topic storage only applies to --batch without --store, using linked.");
+            topicStorage = TopicStorage.LINKED;
+        }
+        Menu menu = new Menu(storage);
+        menu.lazy = lazy;
+        menu.maxLoadedTopics = maxLoadedTopics;
+        VocabularyJournal journal = null;
+        if (storeDirectory != null) {
+            try {
+                journal = VocabularyJournal.open(storeDirectory, menu.dll, storage);
+                System.out.println("Loaded " + menu.dll.getSize() + " topic(s) from " + storeDirectory + ".");
+            } catch (IOException e) {
+                System.out.println("Error opening the store: " + e.getMessage());
+                System.exit(2);
+            }
+            VocabularyJournal openJournal = journal;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    openJournal.close();
+                } catch (IOException e) {
+                    System.out.println("Error closing the journal: " + e.getMessage());
+                }
+            }));
+        }
+
+        if (batchFile != null) {
+            try {
+                TopicList topics = topicStorage == TopicStorage.LINKED ? menu.dll : topicStorage.newList(storage);
+                int failures = new BatchRunner(topics, System.out).run(batchFile);
+                System.exit(failures == 0 ? 0 : 1);
+            } catch (IOException e) {
+                System.out.println("Error reading the batch file: " + e.getMessage());
+                System.exit(2);
+            }
+        }
 
         while (true) {
             menu.displayMenu();
@@ -412,6 +651,12 @@ public class Menu {
                     case 9:
                         menu.saveToFile();
                         break;
+                    case 10:
+                        menu.saveSnapshot();
+                        break;
+                    case 11:
+                        menu.showStatistics();
+                        break;
                     case 0:
                         System.out.println("Exiting...");
                         System.exit(0);
@@ -421,6 +666,21 @@ public class Menu {
                 }
             } catch (NumberFormatException e) {
                 System.out.println("Invalid input. Please enter a valid choice.");
+            } catch (UncheckedIOException e) {
+                System.out.println(e.getMessage());
+            }
+            if (journal != null) {
+                try {
+                    journal.flush();
+                } catch (IOException e) {
+                    System.out.println("Error writing the journal: " + e.getMessage());
+                    try {
+                        journal.rebuild(menu.dll);
+                        System.out.println("The store was rewritten from the current vocabulary.");
+                    } catch (IOException rebuildError) {
+                        System.out.println("Error rewriting the store, changes are no longer saved: " + rebuildError.getMessage());
+                    }
+                }
             }
         }
     }
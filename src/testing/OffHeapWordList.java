@@ -0,0 +1,600 @@
+package testing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import testing.Instrumentation.Operation;
+
+/**
+ * Represents a list of words kept outside the Java heap.
+ * <p>
+ * The words are stored in order as UTF-8 bytes in a direct buffer, each one preceded by a header giving its length
+ * in bytes and whether it holds characters outside ASCII. The heap only holds the list and its buffer, whatever the
+ * number of words, so the garbage collector has nothing to trace for them. Finding a word compares bytes in place;
+ * a word only becomes a String when it is returned.
+ * <p>
+ * Adding or removing a word in the middle moves the bytes of the words after it, like an array. The buffer doubles
+ * when it is full; the memory of a replaced buffer is released once the buffer object is collected.
+ * Unlike the other word lists, replacing a word moves the bytes after it, so it also makes iterators fail.
+ * When instrumented, operations report the number of words they went through.
+ */
+public class OffHeapWordList implements WordList {
+
+    /** Initial capacity of the buffer, in bytes. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The records of the words, in order, from 0 to {@link #used}. */
+    private ByteBuffer bytes;
+    private int used;
+    private int size;
+    /** Number of changes (words added, removed or replaced), used by iterators to detect concurrent modifications. */
+    private int modCount;
+    /** Notified of every word added to or removed from the list, may be null. */
+    private WordListener listener;
+    /** Number of words gone through by the last search, for instrumentation. */
+    private int scanned;
+
+    /**
+     * Constructs an empty off-heap list.
+     */
+    public OffHeapWordList() {
+        bytes = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty off-heap list that reports its word changes to the given listener.
+     *
+     * @param listener The listener to notify whenever a word is added or removed.
+     */
+    OffHeapWordList(WordListener listener) {
+        this();
+        this.listener = listener;
+    }
+
+    /**
+     * Adds the specified value at the beginning of the list.
+     *
+     * @param newValue The value to be added at the beginning of the list.
+     */
+    @Override
+    public void addAtHead(String newValue) {
+        long start = Instrumentation.start();
+        insertAt(0, encode(newValue));
+        added(newValue);
+        Instrumentation.record(Operation.WORD_INSERT, start, 0);
+    }
+
+    /**
+     * Adds the specified value at the end of the list.
+     *
+     * @param newValue The value to be added at the end of the list.
+     */
+    @Override
+    public void addAtEnd(String newValue) {
+        long start = Instrumentation.start();
+        insertAt(used, encode(newValue));
+        added(newValue);
+        Instrumentation.record(Operation.WORD_INSERT, start, 0);
+    }
+
+    /**
+     * Adds all the given values at the end of the list, keeping their order.
+     * The buffer is grown once for all the values.
+     *
+     * @param newValues The values to be added at the end of the list.
+     */
+    @Override
+    public void addAll(Collection<String> newValues) {
+        ArrayList<byte[]> encoded = new ArrayList<>(newValues.size());
+        long length = 0;
+        for (String newValue : newValues) {
+            byte[] word = encode(newValue);
+            encoded.add(word);
+            length += recordLength(word);
+        }
+        ensureCapacity(length);
+        for (byte[] word : encoded) {
+            used = writeRecord(used, word);
+        }
+        modCount++;
+        size += encoded.size();
+        if (listener != null) {
+            for (String newValue : newValues) {
+                listener.wordAdded(newValue);
+            }
+        }
+    }
+
+    /**
+     * Adds the specified value after the first occurrence of another value.
+     * If that value does not exist in the list, the new value is not added.
+     *
+     * @param value    The value after which the new value should be added.
+     * @param newValue The value to be added.
+     */
+    @Override
+    public void addAfter(String value, String newValue) {
+        long start = Instrumentation.start();
+        int position = find(encode(value));
+        if (position >= 0) {
+            insertAt(recordEnd(position), encode(newValue));
+            added(newValue);
+        }
+        Instrumentation.record(Operation.WORD_INSERT, start, scanned);
+    }
+
+    /**
+     * Removes and returns the value at the beginning of the list.
+     *
+     * @return The value removed from the beginning of the list, or null if the list is empty.
+     */
+    @Override
+    public String removeHead() {
+        long start = Instrumentation.start();
+        String value = used == 0 ? null : removeAt(0);
+        Instrumentation.record(Operation.WORD_REMOVE, start, 0);
+        return value;
+    }
+
+    /**
+     * Removes and returns the value at the end of the list.
+     * The words are gone through to find where the last one starts.
+     *
+     * @return The value removed from the end of the list, or null if the list is empty.
+     */
+    @Override
+    public String removeEnd() {
+        if (used == 0) {
+            return null;
+        }
+        long start = Instrumentation.start();
+        int position = 0;
+        for (int next = recordEnd(position); next < used; next = recordEnd(next)) {
+            position = next;
+        }
+        String value = removeAt(position);
+        Instrumentation.record(Operation.WORD_REMOVE, start, size);
+        return value;
+    }
+
+    /**
+     * Removes the first occurrence of the specified value from the list.
+     *
+     * @param valueToRemove The value to be removed from the list.
+     * @return The value removed from the list, or null if the specified value is not found.
+     */
+    @Override
+    public String removeValue(String valueToRemove) {
+        long start = Instrumentation.start();
+        int position = find(encode(valueToRemove));
+        String value = position >= 0 ? removeAt(position) : null;
+        Instrumentation.record(Operation.WORD_REMOVE, start, scanned);
+        return value;
+    }
+
+    /**
+     * Removes and returns the value following the first occurrence of the specified value.
+     *
+     * @param data The value after which the value to be removed is located.
+     * @return The value removed from the list, or null if the specified value is not found or is the last one.
+     */
+    @Override
+    public String removeAfter(String data) {
+        long start = Instrumentation.start();
+        int position = find(encode(data));
+        String value = null;
+        if (position >= 0 && recordEnd(position) < used) {
+            value = removeAt(recordEnd(position));
+        }
+        Instrumentation.record(Operation.WORD_REMOVE, start, scanned);
+        return value;
+    }
+
+    /**
+     * Replaces the first value equal to the old value with the new value, keeping its position.
+     *
+     * @param oldValue The value to be replaced.
+     * @param newValue The value replacing it.
+     * @return true if the old value was found and replaced.
+     */
+    @Override
+    public boolean replace(String oldValue, String newValue) {
+        long start = Instrumentation.start();
+        int position = find(encode(oldValue));
+        if (position >= 0) {
+            byte[] word = encode(newValue);
+            int oldEnd = recordEnd(position);
+            int newEnd = position + recordLength(word);
+            ensureCapacity(newEnd - oldEnd);
+            moveTail(oldEnd, newEnd);
+            writeRecord(position, word);
+            modCount++;
+            removed(oldValue);
+            added(newValue);
+        }
+        Instrumentation.record(Operation.WORD_REPLACE, start, scanned);
+        return position >= 0;
+    }
+
+    /**
+     * Checks whether the list holds a value equal to the given one.
+     *
+     * @param value The value to look for.
+     * @return true if the value is in the list.
+     */
+    @Override
+    public boolean contains(String value) {
+        return find(encode(value)) >= 0;
+    }
+
+    /**
+     * Checks whether the list holds a value equal to the given one, ignoring case.
+     * Words made of ASCII characters are compared in place; the others are decoded and folded.
+     *
+     * @param folded      The value to look for, in lower case as folded with {@link Locale#ROOT}.
+     * @param foldedBytes The UTF-8 bytes of the folded value.
+     * @return true if a value of the list folds to the given one.
+     */
+    boolean containsFolded(String folded, byte[] foldedBytes) {
+        for (int position = 0; position < used; position = recordEnd(position)) {
+            int header = readHeader(position);
+            int length = header >>> 1;
+            int start = position + headerLength(header);
+            if ((header & 1) != 0) {
+                if (decode(start, length).toLowerCase(Locale.ROOT).equals(folded)) {
+                    return true;
+                }
+            } else if (length == foldedBytes.length && equalsIgnoringAsciiCase(start, foldedBytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the values of the list starting with the given bytes to a collection, in list order.
+     *
+     * @param prefix The UTF-8 bytes of the prefix.
+     * @param words  The collection receiving the matching values.
+     */
+    void collectWithPrefix(byte[] prefix, Collection<String> words) {
+        for (int position = 0; position < used; position = recordEnd(position)) {
+            int header = readHeader(position);
+            int length = header >>> 1;
+            int start = position + headerLength(header);
+            if (length >= prefix.length && startsWith(start, prefix)) {
+                words.add(decode(start, length));
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return The number of values in the list.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of bytes taken by the words outside the heap.
+     *
+     * @return The number of bytes used in the buffer.
+     */
+    public int getUsedBytes() {
+        return used;
+    }
+
+    /**
+     * Displays the content of the list.
+     * If the list is empty, prints a message indicating so.
+     */
+    @Override
+    public void display() {
+        if (size == 0) {
+            System.out.println("Your list is empty.");
+        } else {
+            System.out.println("Your list has " + size + " element(s): ");
+            for (String word : this) {
+                System.out.println(word);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the first value of the list.
+     *
+     * @return The first value of the list, or null if the list is empty.
+     */
+    @Override
+    public String getFirstWord() {
+        if (used == 0) {
+            return null;
+        }
+        int header = readHeader(0);
+        return decode(headerLength(header), header >>> 1);
+    }
+
+    /**
+     * Retrieves an iterator over the values of the list, in order, each one decoded when reached.
+     * The iterator is fail-fast: it throws a {@link ConcurrentModificationException} if values are
+     * added to, removed from or replaced in the list during the iteration.
+     *
+     * @return An iterator over the values of the list.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int position = 0;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return position < used;
+            }
+
+            @Override
+            public String next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= used) {
+                    throw new NoSuchElementException();
+                }
+                int header = readHeader(position);
+                int start = position + headerLength(header);
+                position = start + (header >>> 1);
+                return decode(start, header >>> 1);
+            }
+        };
+    }
+
+    /**
+     * Inserts the record of a word at the given offset, moving the following records.
+     *
+     * @param position The offset of the new record, at the start of a record or at the end of the words.
+     * @param word     The UTF-8 bytes of the word.
+     */
+    private void insertAt(int position, byte[] word) {
+        int length = recordLength(word);
+        ensureCapacity(length);
+        moveTail(position, position + length);
+        writeRecord(position, word);
+        modCount++;
+        size++;
+    }
+
+    /**
+     * Removes the record starting at the given offset, moving the following records.
+     *
+     * @param position The offset of the record.
+     * @return The word of the record.
+     */
+    private String removeAt(int position) {
+        int header = readHeader(position);
+        String value = decode(position + headerLength(header), header >>> 1);
+        moveTail(recordEnd(position), position);
+        modCount++;
+        size--;
+        removed(value);
+        return value;
+    }
+
+    /**
+     * Moves the records from an offset to the end of the words to another offset, updating the end of the words.
+     * The buffer must be large enough.
+     *
+     * @param from The offset of the first byte to move.
+     * @param to   The offset the byte is moved to.
+     */
+    private void moveTail(int from, int to) {
+        if (from != to && from < used) {
+            bytes.put(to, bytes.duplicate(), from, used - from);
+        }
+        used += to - from;
+    }
+
+    /**
+     * Finds the first record holding the given word.
+     *
+     * @param word The UTF-8 bytes of the word.
+     * @return The offset of the record, or -1 if no record holds the word.
+     */
+    private int find(byte[] word) {
+        scanned = 0;
+        for (int position = 0; position < used; position = recordEnd(position), scanned++) {
+            int header = readHeader(position);
+            if (header >>> 1 == word.length && startsWith(position + headerLength(header), word)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Grows the buffer if it cannot take the given number of additional bytes.
+     *
+     * @param extra The number of bytes to add after the words.
+     */
+    private void ensureCapacity(long extra) {
+        long needed = used + extra;
+        if (needed <= bytes.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Off-heap word list full: " + needed + " bytes needed");
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * bytes.capacity()));
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        grown.put(0, bytes, 0, used);
+        bytes = grown;
+    }
+
+    /**
+     * Writes the record of a word at the given offset.
+     *
+     * @param position The offset of the record.
+     * @param word     The UTF-8 bytes of the word.
+     * @return The offset following the record.
+     */
+    private int writeRecord(int position, byte[] word) {
+        boolean ascii = true;
+        for (byte b : word) {
+            if (b < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        // The header is a variable-length integer, 7 bits per byte, the low bit telling whether the word is not ASCII
+        int header = word.length << 1 | (ascii ? 0 : 1);
+        while ((header & ~0x7F) != 0) {
+            bytes.put(position++, (byte) (header & 0x7F | 0x80));
+            header >>>= 7;
+        }
+        bytes.put(position++, (byte) header);
+        bytes.put(position, word);
+        return position + word.length;
+    }
+
+    /**
+     * Reads the header of the record starting at the given offset.
+     *
+     * @param position The offset of the record.
+     * @return The length of the word in bytes, shifted left by one, with the low bit set if the word is not ASCII.
+     */
+    private int readHeader(int position) {
+        int header = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes.get(position++);
+            header |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return header;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the offset following the record starting at the given offset.
+     *
+     * @param position The offset of the record.
+     * @return The offset of the next record, or the end of the words.
+     */
+    private int recordEnd(int position) {
+        int header = readHeader(position);
+        return position + headerLength(header) + (header >>> 1);
+    }
+
+    /**
+     * Checks whether the bytes at an offset start with the given bytes.
+     *
+     * @param start  The offset of the bytes to compare.
+     * @param prefix The expected bytes.
+     * @return true if the bytes match.
+     */
+    private boolean startsWith(int start, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the ASCII bytes at an offset, in lower case, equal the given bytes.
+     *
+     * @param start  The offset of the bytes to compare.
+     * @param folded The expected bytes, in lower case.
+     * @return true if the bytes match.
+     */
+    private boolean equalsIgnoringAsciiCase(int start, byte[] folded) {
+        for (int i = 0; i < folded.length; i++) {
+            byte b = bytes.get(start + i);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != folded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the word at an offset.
+     *
+     * @param start  The offset of the bytes of the word.
+     * @param length The number of bytes of the word.
+     * @return The word.
+     */
+    private String decode(int start, int length) {
+        byte[] word = new byte[length];
+        bytes.get(start, word);
+        return new String(word, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retrieves the number of bytes of a record header.
+     *
+     * @param header The value of the header.
+     * @return The number of bytes it is written on.
+     */
+    private static int headerLength(int header) {
+        int length = 1;
+        while ((header & ~0x7F) != 0) {
+            header >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Retrieves the number of bytes of the record of a word.
+     *
+     * @param word The UTF-8 bytes of the word.
+     * @return The number of bytes of its header and of the word.
+     */
+    private static int recordLength(byte[] word) {
+        return headerLength(word.length << 1 | 1) + word.length;
+    }
+
+    /**
+     * Encodes a word in UTF-8.
+     *
+     * @param word The word.
+     * @return The UTF-8 bytes of the word.
+     */
+    static byte[] encode(String word) {
+        return word.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reports an added word to the listener, if any.
+     *
+     * @param word The word that was added.
+     */
+    private void added(String word) {
+        if (listener != null) {
+            listener.wordAdded(word);
+        }
+    }
+
+    /**
+     * Reports a removed word to the listener, if any.
+     *
+     * @param word The word that was removed.
+     */
+    private void removed(String word) {
+        if (listener != null) {
+            listener.wordRemoved(word);
+        }
+    }
+}
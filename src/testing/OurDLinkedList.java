@@ -1,28 +1,125 @@
 package testing;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Scanner;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import testing.Instrumentation.Operation;
 
 /**
  * Represents a doubly linked list containing nodes, where each node holds a topic and a linked list of words.
+ * The topics can be iterated over in order with a for-each loop, and the topics or the (topic, word) pairs
+ * can be processed with sequential or parallel streams.
  */
-public class OurDLinkedList {
+public class OurDLinkedList implements TopicList {
 	
+    /** Size of the buffer used by {@link #writeToFile(String)}, in characters. */
+    private static final int SAVE_BUFFER_SIZE = 1 << 20;
+    /** Size of the buffer used to display topics and words, in characters. */
+    private static final int DISPLAY_BUFFER_SIZE = 1 << 16;
+
     private Node head;
     private Node tail;
     private int size;
+    /** Number of topics added or removed so far, used by iterators to detect concurrent modifications. */
+    private int modCount;
+    /** Holds every node by position, to get, insert or remove a topic by number in logarithmic time. */
+    private PositionTree<Node> positions;
+    /** Maps each topic name to the first node (from the head) holding that topic. */
+    private HashMap<String, Node> topicIndex;
+    /** Maps each case-folded word to the topic nodes containing it, with the number of occurrences in each. */
+    private Map<String, Map<Node, Integer>> wordIndex;
+    /** Sorted index of every word of every topic, for letter and prefix queries. */
+    private WordPrefixIndex prefixIndex;
+    /** How the words of each new topic are stored. */
+    private final WordStorage storage;
+    /** Whether words are indexed on the heap; off-heap words are searched by scanning their bytes instead. */
+    private final boolean indexWords;
+    /** Whether the word indexes may be updated and read by several threads at once. */
+    private final boolean concurrent;
+    /** The journal recording the changes made to the list, or null if they are not recorded. */
+    private VocabularyJournal journal;
+    /** Recent results of word searches and prefix queries, dropped when the words they depend on change. */
+    private final QueryCache queryCache;
+    /**
+     * Topics loaded lazily whose words have been read and not changed since, least recently used first,
+     * or null when every topic is in memory.
+     */
+    private LinkedHashMap<Node, Boolean> loadedLazyTopics;
+    /** Maximum number of entries of {@link #loadedLazyTopics}, 0 for no limit. */
+    private int maxLoadedTopics;
 
     /**
      * Constructs an empty doubly linked list.
      * Initializes the head and tail references to null and the size to 0.
      */
     public OurDLinkedList() {
+        this(WordStorage.LINKED);
+    }
+
+    /**
+     * Constructs an empty doubly linked list whose topics store their words as specified.
+     *
+     * @param storage How the words of each topic are stored.
+     */
+    public OurDLinkedList(WordStorage storage) {
+        this(storage, false);
+    }
+
+    /**
+     * Constructs an empty doubly linked list whose topics store their words as specified.
+     * With concurrent indexes, words of different topics may be changed by different threads at the same time,
+     * while other threads search the words; changes to the topics themselves still need outside locking.
+     *
+     * @param storage    How the words of each topic are stored.
+     * @param concurrent Whether the word indexes must support concurrent updates and reads.
+     * @throws IllegalArgumentException if the words are stored off the heap with concurrent indexes,
+     *                                  since off-heap words are searched without indexes.
+     * @see ConcurrentDLinkedList
+     */
+    OurDLinkedList(WordStorage storage, boolean concurrent) {
+        if (concurrent && storage == WordStorage.OFF_HEAP) {
+            throw new IllegalArgumentException("Off-heap word storage cannot be searched concurrently");
+        }
+        this.storage = storage;
+        this.indexWords = storage != WordStorage.OFF_HEAP;
+        this.concurrent = concurrent;
         head = null;
         tail = null;
         size = 0;
+        positions = new PositionTree<>();
+        topicIndex = new HashMap<>();
+        wordIndex = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        prefixIndex = new WordPrefixIndex(concurrent);
+        queryCache = new QueryCache(QueryCache.DEFAULT_CAPACITY);
     }
     
     /**
@@ -48,7 +145,9 @@ public class OurDLinkedList {
      *
      * @param newValue The value to be added at the head of the list.
      */    
+    	@Override
     	public void addAtHead(String newValue) {
+        long start = Instrumentation.start();
         if (size == 0) {
             head = new Node(newValue, null, null);
             tail = head;
@@ -57,8 +156,14 @@ public class OurDLinkedList {
             head = new Node(newValue, null, head);
             oldHead.before = head; // head.after.before
         }
+        head.position = positions.insert(0, head);
+
+        modCount++;
 
         size++;
+        indexTopic(head);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+        recordChange(VocabularyJournal.ADD_AT_HEAD, null, newValue);
     }
     
     	/**
@@ -66,7 +171,19 @@ public class OurDLinkedList {
     	 *
     	 * @param newValue The value to be added at the tail of the list.
     	 */
+    	@Override
     	public void addAtTail(String newValue) {
+        linkAtTail(newValue);
+        recordChange(VocabularyJournal.ADD_AT_TAIL, null, newValue);
+    }
+
+    	/**
+    	 * Links a new node with the given value at the tail of the doubly linked list, without recording the change.
+    	 *
+    	 * @param newValue The value to be added at the tail of the list.
+    	 */
+    	private void linkAtTail(String newValue) {
+        long start = Instrumentation.start();
         if (size == 0) { //addAtHead(newValue);
             tail = new Node(newValue, null, null);
             head = tail;
@@ -75,52 +192,61 @@ public class OurDLinkedList {
             tail = new Node(newValue, tail, null);
             oldTail.after = tail;
         }
+        tail.position = positions.insert(size, tail);
+        modCount++;
         size++;
+        indexTopic(tail);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
     }
 
     	/**
-    	 * Adds a new node with the given value after the node containing the specified reference value in the doubly linked list.
+    	 * Adds a new topic with the given words at the tail of the doubly linked list.
+    	 *
+    	 * @param topic The topic to be added at the tail of the list.
+    	 * @param words The words of the new topic, in order.
+    	 */
+    	@Override
+    	public void appendTopic(String topic, Collection<String> words) {
+        linkAtTail(topic);
+        tail.words.addAll(words);
+        recordChange(VocabularyJournal.APPEND_TOPIC, words, topic);
+    }
+
+    	/**
+    	 * Adds a new topic with the given words after the node containing the specified reference value.
     	 * If the reference value is not found, or the list is empty, no action is taken.
     	 *
     	 * @param referenceValue The value after which the new node is to be added.
     	 * @param newValue       The value to be added after the reference value.
+    	 * @param words          The words of the new topic, in order.
+    	 * @return true if the topic was added, false if the reference value was not found.
     	 */
-    	public void addAfter(String referenceValue, String newValue) {
-        if (head == null) {
-            return; // List is empty, nothing to add after
+    	@Override
+    	public boolean addAfter(String referenceValue, String newValue, Collection<String> words) {
+        long start = Instrumentation.start();
+        Node position = topicIndex.get(referenceValue);
+        if (position == null) {
+            return false;
+        }
+        // Create a new node with newValue
+        Node newNode = new Node(newValue, position, position.after);
+        newNode.words.addAll(words);
+
+        // Adjust the references of surrounding nodes
+        if (position == tail) {
+            tail = newNode;
         } else {
-            Node position = head;
-            // Traverse the list until the referenceValue is found
-            while (position != null && !position.topic.equals(referenceValue)) {
-                position = position.after;
-            }
-            // If referenceValue is not found, or list is empty, do nothing
-            if (position == null) {
-                return;
-            } else {
-                // Create a new node with newValue
-                Node newNode = new Node(newValue, position, position.after);
-                
-                // Prompt user to input words
-                Scanner scanner = new Scanner(System.in);
-                System.out.println("Enter words for the topic '" + newValue + "'. Enter blank line to finish:");
-                String word = scanner.nextLine().trim();
-                while (!word.isEmpty()) {
-                    newNode.words.addAtEnd(word);
-                    word = scanner.nextLine().trim();
-                }
-                
-                // Adjust the references of surrounding nodes
-                if (position == tail) {
-                    addAtTail(newValue); // Add newValue at the tail
-                } else {
-                    position.after.before = newNode;
-                    position.after = newNode;
-                }
-                // Increase the size of the list
-                size++;
-            }
+            position.after.before = newNode;
         }
+        position.after = newNode;
+        newNode.position = positions.insertAfter(position.position, newNode);
+        // Increase the size of the list
+        modCount++;
+        size++;
+        indexTopic(newNode);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
+        recordChange(VocabularyJournal.ADD_AFTER, words, referenceValue, newValue);
+        return true;
     }
 
     	/**
@@ -129,15 +255,10 @@ public class OurDLinkedList {
     	 * @param topic The topic for which the linked list of words is to be retrieved.
     	 * @return The linked list containing words for the specified topic, or null if the topic is not found.
     	 */
-    public OurLinkedList getWordsForTopic(String topic) {
-        Node current = head;
-        while (current != null) {
-            if (current.getTopic().equals(topic)) {
-                return current.words;
-            }
-            current = current.getNext();
-        }
-        return null; // Topic not found
+    @Override
+    public WordList getWordsForTopic(String topic) {
+        Node node = findNodeByTopic(topic);
+        return node != null ? node.getWords() : null; // null if topic not found
     }
     
     
@@ -174,60 +295,51 @@ public class OurDLinkedList {
 //        }
 //    }
     /**
-     * Adds a new node with the given value before the node containing the specified reference value in the doubly linked list.
+     * Adds a new topic with the given words before the node containing the specified reference value.
      * If the reference value is not found, or the list is empty, no action is taken.
      *
      * @param referenceValue The value before which the new node is to be added.
      * @param newValue       The value to be added before the reference value.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference value was not found.
      */
-    public void addBefore(String referenceValue, String newValue) {
-        if (head == null) {
-            return; // List is empty, nothing to add before
+    @Override
+    public boolean addBefore(String referenceValue, String newValue, Collection<String> words) {
+        Node position = topicIndex.get(referenceValue);
+        if (position == null) {
+            return false;
+        }
+        linkBefore(position, newValue, words);
+        recordChange(VocabularyJournal.ADD_BEFORE, words, referenceValue, newValue);
+        return true;
+    }
+
+    /**
+     * Links a new topic with the given words before a node, without recording the change.
+     *
+     * @param position The node before which the new node is to be added.
+     * @param newValue The value to be added before the node.
+     * @param words    The words of the new topic, in order.
+     */
+    private void linkBefore(Node position, String newValue, Collection<String> words) {
+        long start = Instrumentation.start();
+        // Create a new node with newValue and insert it before the position node
+        Node newNode = new Node(newValue, position.before, position);
+        newNode.words.addAll(words);
+
+        // Adjust the references of surrounding nodes
+        if (position == head) {
+            head = newNode;
         } else {
-            Node position = head;
-            // Traverse the list until the referenceValue is found
-            while (position != null && !position.topic.equals(referenceValue)) {
-                position = position.after;
-            }
-            // If referenceValue is not found, or list is empty, do nothing
-            if (position == null) {
-                return;
-            } else {
-                // If referenceValue is found at the head of the list
-                if (position == head) {
-                    addAtHead(newValue); // Add newValue at the head
-                    Node newNode = new Node(newValue, position.before, position);
-                    Scanner scanner = new Scanner(System.in);
-
-                    // Prompt user to input words
-                    System.out.println("Enter words for the topic '" + newValue + "'. Enter blank line to finish:");
-                    String word = scanner.nextLine().trim();
-                    while (!word.isEmpty()) {
-                        newNode.words.addAtEnd(word);
-                        word = scanner.nextLine().trim();
-                    }
-                } else {
-                    // Otherwise, create a new node with newValue
-                    // and insert it before the position node
-                    Node newNode = new Node(newValue, position.before, position);
-                    Scanner scanner = new Scanner(System.in);
-
-                    // Prompt user to input words
-                    System.out.println("Enter words for the topic '" + newValue + "'. Enter blank line to finish:");
-                    String word = scanner.nextLine().trim();
-                    while (!word.isEmpty()) {
-                        newNode.words.addAtEnd(word);
-                        word = scanner.nextLine().trim();
-                    }
-                    
-                    // Adjust the references of surrounding nodes
-                    position.before.after = newNode;
-                    position.before = newNode;
-                    // Increase the size of the list
-                    size++;
-                }
-            }
+            position.before.after = newNode;
         }
+        position.before = newNode;
+        newNode.position = positions.insertBefore(position.position, newNode);
+        // Increase the size of the list
+        modCount++;
+        size++;
+        indexTopic(newNode);
+        Instrumentation.record(Operation.TOPIC_INSERT, start, 0);
     }
 
     
@@ -245,22 +357,26 @@ public class OurDLinkedList {
      *
      * @return The value of the head node that has been removed, or null if the list is empty.
      */
+    @Override
     public String removeHead() {
         if (head == null) {
             return null;
-        } else if (size == 1) {
-            Node temp = head;
+        }
+        long start = Instrumentation.start();
+        Node temp = head;
+        if (size == 1) {
             head = null;
             tail = null;
-            size--;
-            return temp.topic;
         } else {
-            Node temp = head;
             head = head.after;
             head.before = null;
-            size--;
-            return temp.topic;
         }
+        positions.remove(temp.position);
+        modCount++;
+        size--;
+        Instrumentation.record(Operation.TOPIC_REMOVE, start, unindexNode(temp));
+        recordChange(VocabularyJournal.REMOVE_HEAD, null);
+        return temp.topic;
     }
 
     /**
@@ -269,6 +385,7 @@ public class OurDLinkedList {
      *
      * @return The value of the tail node that has been removed, or null if the list is empty.
      */
+    @Override
     public String removeTail() {
     	if (tail == null) {
     		return null;
@@ -283,10 +400,15 @@ public class OurDLinkedList {
     		return removeHead();
     	}
     	else {
+    		long start = Instrumentation.start();
     		Node temp = tail;
     		tail = tail.before;
     		tail.after = null;
+    		positions.remove(temp.position);
+    		modCount++;
     		size--;
+    		Instrumentation.record(Operation.TOPIC_REMOVE, start, unindexNode(temp));
+    		recordChange(VocabularyJournal.REMOVE_TAIL, null);
     		return temp.topic;
     	}
     }
@@ -298,31 +420,98 @@ public class OurDLinkedList {
      * @param topic The topic to be removed from the list.
      * @return The value of the removed node, or null if the list is empty or the topic is not found.
      */
+    @Override
     public String removeValue(String topic) {
-        if (head == null) {
-            return null; // List is empty, nothing to remove
+        Node position = topicIndex.get(topic);
+        if (position == null) {
+            return null; // List is empty or topic not found
+        } else if (position == head) {
+            return removeHead(); // Remove from head
+        } else if (position == tail) {
+            return removeTail(); // Remove from tail
         } else {
-            Node position = head;
-            while (position != null && !position.topic.equals(topic)) {
-                position = position.after;
-            }
-            if (position != null) {
-                if (position == head) {
-                    return removeHead(); // Remove from head
-                } else if (position == tail) {
-                    return removeTail(); // Remove from tail
-                } else {
-                    Node beforePosition = position.before;
-                    Node afterPosition = position.after;
-
-                    beforePosition.after = afterPosition;
-                    afterPosition.before = beforePosition;
-                    size--;
-                    return position.topic;
-                }
-            }
-            return null; // Topic not found
+            unlinkMiddle(position);
+            recordChange(VocabularyJournal.REMOVE_TOPIC, null, topic);
+            return position.topic;
+        }
+    }
+
+    /**
+     * Unlinks a node that is neither the head nor the tail, without recording the change.
+     *
+     * @param position The node to be removed.
+     */
+    private void unlinkMiddle(Node position) {
+        long start = Instrumentation.start();
+        Node beforePosition = position.before;
+        Node afterPosition = position.after;
+
+        beforePosition.after = afterPosition;
+        afterPosition.before = beforePosition;
+        positions.remove(position.position);
+        modCount++;
+        size--;
+        Instrumentation.record(Operation.TOPIC_REMOVE, start, unindexNode(position));
+    }
+
+    /**
+     * Retrieves the topic at a position of the doubly linked list, in logarithmic time.
+     *
+     * @param index The position of the topic, from 0 at the head.
+     * @return The topic at that position.
+     * @throws IndexOutOfBoundsException if the position is outside the list.
+     */
+    public String getTopicAt(int index) {
+        return positions.get(index).topic;
+    }
+
+    /**
+     * Retrieves the position of the first occurrence of a topic, in logarithmic time.
+     *
+     * @param topic The topic to look for.
+     * @return The position of the topic, from 0 at the head, or -1 if the topic is not found.
+     */
+    public int indexOfTopic(String topic) {
+        Node node = topicIndex.get(topic);
+        return node != null ? positions.indexOf(node.position) : -1;
+    }
+
+    /**
+     * Adds a new topic with the given words at a position of the doubly linked list, in logarithmic time.
+     * The topics from that position on move one position further.
+     *
+     * @param index The position of the new topic, from 0 at the head to the number of topics at the tail.
+     * @param topic The topic to be added.
+     * @param words The words of the new topic, in order.
+     * @throws IndexOutOfBoundsException if the position is outside the list and not just past its end.
+     */
+    public void insertTopicAt(int index, String topic, Collection<String> words) {
+        Objects.checkIndex(index, size + 1);
+        if (index == size) {
+            appendTopic(topic, words);
+            return;
+        }
+        linkBefore(positions.get(index), topic, words);
+        recordChange(VocabularyJournal.INSERT_AT, words, String.valueOf(index), topic);
+    }
+
+    /**
+     * Removes the topic at a position of the doubly linked list, in logarithmic time.
+     *
+     * @param index The position of the topic, from 0 at the head.
+     * @return The topic removed.
+     * @throws IndexOutOfBoundsException if the position is outside the list.
+     */
+    public String removeTopicAt(int index) {
+        Node position = positions.get(index);
+        if (position == head) {
+            return removeHead();
+        } else if (position == tail) {
+            return removeTail();
         }
+        unlinkMiddle(position);
+        recordChange(VocabularyJournal.REMOVE_AT, null, String.valueOf(index));
+        return position.topic;
     }
 
     /**
@@ -334,16 +523,11 @@ public class OurDLinkedList {
      * @param newWord The new word to replace the old word.
      */
     public void modifyWordNode(String topic, String oldWord, String newWord) {
-        OurLinkedList topicList = getWordsForTopic(topic);
+        WordList topicList = getWordsForTopic(topic);
         if (topicList != null) {
-            OurLinkedList.Node wordNode = topicList.getHead();
-            while (wordNode != null) {
-                if (wordNode.getData().equals(oldWord)) {
-                    wordNode.setData(newWord);
-                    System.out.println("Word '" + oldWord + "' modified to '" + newWord + "' in topic '" + topic + "'.");
-                    return;
-                }
-                wordNode = wordNode.getNext();
+            if (replaceWord(topic, oldWord, newWord)) {
+                System.out.println("Word '" + oldWord + "' modified to '" + newWord + "' in topic '" + topic + "'.");
+                return;
             }
             System.out.println("Word '" + oldWord + "' not found in topic '" + topic + "'.");
         } else {
@@ -351,86 +535,293 @@ public class OurDLinkedList {
         }
     }
     /**
-     * Adds a word to the specified topic in the doubly linked list.
-     * If the topic is not found, prints a message accordingly.
+     * Adds a word at the beginning of the words of the specified topic.
      *
      * @param topic The topic to which the word is to be added.
+     * @param word  The word to be added.
+     * @return true if the word was added, false if the topic was not found.
      */
-    public void addWordToTopic(String topic) {
-        OurLinkedList topicList = getWordsForTopic(topic);
-        
-        if (topicList != null) {
-            // Prompt user to input words
-            Scanner scanner = new Scanner(System.in);
-            System.out.println("Enter a word for the topic '" + topic + "':");
-            String word = scanner.nextLine().trim();
+    @Override
+    public boolean addWordToTopic(String topic, String word) {
+        WordList topicList = getWordsForTopic(topic);
+        if (topicList == null) {
+            return false;
+        }
+        topicList.addAtHead(word);
+        recordChange(VocabularyJournal.ADD_WORD, null, topic, word);
+        return true;
+    }
+
+    /**
+     * Adds words at the end of the words of the specified topic, keeping their order.
+     *
+     * @param topic The topic to which the words are to be added.
+     * @param words The words to be added.
+     * @return true if the words were added, false if the topic was not found.
+     */
+    @Override
+    public boolean addWordsToTopic(String topic, Collection<String> words) {
+        WordList topicList = getWordsForTopic(topic);
+        if (topicList == null) {
+            return false;
+        }
+        topicList.addAll(words);
+        recordChange(VocabularyJournal.ADD_WORDS, words, topic);
+        return true;
+    }
 
-            // Add the word at the head of the topicList
-            topicList.addAtHead(word);
-            System.out.println("Word '" + word + "' added to the topic '" + topic + "'.");
+    /**
+     * Removes the first occurrence of a word from the specified topic.
+     *
+     * @param topic The topic from which the word is to be removed.
+     * @param word  The word to be removed.
+     * @return true if the word was removed, false if the topic or the word was not found.
+     */
+    @Override
+    public boolean removeWordFromTopic(String topic, String word) {
+        WordList topicList = getWordsForTopic(topic);
+        if (topicList == null || topicList.removeValue(word) == null) {
+            return false;
+        }
+        recordChange(VocabularyJournal.REMOVE_WORD, null, topic, word);
+        return true;
+    }
 
-            // Close the scanner to prevent resource leak
-            scanner.close();
-        } else {
-            System.out.println("Topic '" + topic + "' not found.");
+    /**
+     * Replaces the first occurrence of a word of the specified topic, keeping its position.
+     *
+     * @param topic   The topic in which the word is to be replaced.
+     * @param oldWord The word to be replaced.
+     * @param newWord The word replacing it.
+     * @return true if the word was replaced, false if the topic or the old word was not found.
+     */
+    @Override
+    public boolean replaceWord(String topic, String oldWord, String newWord) {
+        WordList topicList = getWordsForTopic(topic);
+        if (topicList == null || !topicList.replace(oldWord, newWord)) {
+            return false;
+        }
+        recordChange(VocabularyJournal.REPLACE_WORD, null, topic, oldWord, newWord);
+        return true;
+    }
+
+    /**
+     * Attaches a journal to the doubly linked list, so that its following changes are recorded.
+     *
+     * @param journal The journal recording the changes, or null to stop recording them.
+     * @see VocabularyJournal#open(String, OurDLinkedList, WordStorage)
+     */
+    void setJournal(VocabularyJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records a change in the journal attached to the list, if any.
+     *
+     * @param operation The operation performed.
+     * @param words     The words given to the operation, or null if it takes none.
+     * @param arguments The other arguments of the operation, in order.
+     */
+    private void recordChange(byte operation, Collection<String> words, String... arguments) {
+        if (journal != null) {
+            journal.record(operation, words, arguments);
         }
     }
     
     /**
      * Retrieves a list of words starting with the specified letter from all topics in the doubly linked list.
+     * The words are returned sorted alphabetically.
      *
      * @param letter The starting letter of the words to retrieve.
      * @return An ArrayList containing words starting with the specified letter from all topics.
      */
+    @Override
     public ArrayList<String> getWordsStartingWithLetter(char letter) {
-        ArrayList<String> wordsStartingWithLetter = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            OurLinkedList wordsList = current.getWords();
-            if (wordsList != null) {
-                OurLinkedList.Node wordNode = wordsList.getHead();
-                while (wordNode != null) {
-                    String word = wordNode.getData();
-                    if (!word.isEmpty() && word.charAt(0) == letter) {
-                        wordsStartingWithLetter.add(word);
-                    }
-                    wordNode = wordNode.getNext();
+        return getWordsWithPrefix(String.valueOf(letter));
+    }
+
+    /**
+     * Retrieves a list of words starting with the specified prefix from all topics in the doubly linked list.
+     * The words are returned sorted alphabetically, and the cost is proportional to the number of matches.
+     *
+     * @param prefix The prefix of the words to retrieve.
+     * @return An ArrayList containing words starting with the specified prefix from all topics, sorted alphabetically.
+     */
+    @Override
+    public ArrayList<String> getWordsWithPrefix(String prefix) {
+        materializeAll();
+        long start = Instrumentation.start();
+        int traversed = 0;
+        ArrayList<String> words = queryCache.getWords(prefix);
+        if (words == null) {
+            long generation = queryCache.getGeneration();
+            if (indexWords) {
+                words = prefixIndex.getWordsWithPrefix(prefix);
+                traversed = words.size();
+            } else {
+                words = new ArrayList<>();
+                byte[] prefixBytes = OffHeapWordList.encode(prefix);
+                for (Node current = head; current != null; current = current.after) {
+                    ((OffHeapWordList) current.words).collectWithPrefix(prefixBytes, words);
+                    traversed++;
                 }
+                Collections.sort(words);
             }
-            current = current.getNext();
+            queryCache.putWords(prefix, words, generation);
         }
-        return wordsStartingWithLetter;
+        Instrumentation.record(Operation.PREFIX_QUERY, start, traversed);
+        return new ArrayList<>(words);
     }
     
     /**
      * Searches for a specified word in the topics and returns the topic containing the word.
      * If the word is found, returns the topic; otherwise, returns null.
+     * When several topics contain the word, the one closest to the head is returned.
      *
      * @param word The word to search for.
      * @return The topic containing the specified word, or null if the word is not found.
      */
+    @Override
     public String searchWord(String word) {
-        OurDLinkedList.Node current = head;
+        ArrayList<String> topics = topicsOfWord(word, true);
+        return topics.isEmpty() ? null : topics.get(0);
+    }
 
-        while (current != null) {
-            OurLinkedList wordsList = current.getWords();
-            if (wordsList != null) {
-                OurLinkedList.Node currentWord = wordsList.getHead();
-                while (currentWord != null) {
-                    if (currentWord.getData().equalsIgnoreCase(word)) {
-                        return current.getTopic(); // Word found
+    /**
+     * Searches for a specified word in the topics and returns every topic containing it.
+     * The word is matched ignoring case, and the topics are listed in the order of the list.
+     *
+     * @param word The word to search for.
+     * @return An ArrayList of the topics containing the word, empty if the word is not found.
+     */
+    @Override
+    public ArrayList<String> searchWordTopics(String word) {
+        return new ArrayList<>(topicsOfWord(word, false));
+    }
+
+    /**
+     * Retrieves the topics containing a word, ignoring case, from the query cache or else from the word index.
+     * The nodes indexed for the word are put in list order by their positions, without walking the list:
+     * with k such nodes among n topics, this costs O(k log n) to find the first one and O(k log k + k log n) to sort them all.
+     *
+     * @param word      The word to search for.
+     * @param firstOnly Whether only the topic closest to the head is needed; the result is then not cached.
+     * @return The topics containing the word in the order of the list, or only the first one, which must not be modified.
+     */
+    private ArrayList<String> topicsOfWord(String word, boolean firstOnly) {
+        materializeAll();
+        long start = Instrumentation.start();
+        int traversed = 0;
+        String key = foldCase(word);
+        ArrayList<String> topics = queryCache.getTopics(key);
+        if (topics == null) {
+            long generation = queryCache.getGeneration();
+            topics = new ArrayList<>();
+            Map<Node, Integer> topicsOfWord = indexWords ? wordIndex.get(key) : null;
+            if (!indexWords) {
+                byte[] keyBytes = OffHeapWordList.encode(key);
+                for (Node current = head; current != null; current = current.after) {
+                    traversed++;
+                    if (((OffHeapWordList) current.words).containsFolded(key, keyBytes)) {
+                        topics.add(current.getTopic());
+                        if (firstOnly) {
+                            break;
+                        }
+                    }
+                }
+            } else if (topicsOfWord != null && (topicsOfWord.size() == 1 || firstOnly)) {
+                Node first = null;
+                int firstIndex = Integer.MAX_VALUE;
+                for (Node node : topicsOfWord.keySet()) {
+                    int index = positions.indexOf(node.position);
+                    if (index < firstIndex) {
+                        first = node;
+                        firstIndex = index;
                     }
-                    currentWord = currentWord.getNext();
+                    traversed++;
+                }
+                topics.add(first.getTopic());
+            } else if (topicsOfWord != null) {
+                // Each node is ranked once, its position in the high half and its place in the array in the low half
+                Node[] nodes = topicsOfWord.keySet().toArray(new Node[0]);
+                long[] ranked = new long[nodes.length];
+                for (int i = 0; i < nodes.length; i++) {
+                    ranked[i] = (long) positions.indexOf(nodes[i].position) << 32 | i;
                 }
+                Arrays.sort(ranked);
+                topics.ensureCapacity(nodes.length);
+                for (long rank : ranked) {
+                    topics.add(nodes[(int) rank].getTopic());
+                }
+                traversed = nodes.length;
+            }
+            if (!firstOnly || topics.isEmpty()) {
+                queryCache.putTopics(key, topics, generation);
             }
-            current = current.getNext();
         }
+        Instrumentation.record(Operation.SEARCH_WORD, start, traversed);
+        return topics;
+    }
 
-        return null; // Word not found
+    /**
+     * Retrieves the cache of word searches and prefix queries, for its statistics.
+     *
+     * @return The query cache of the list.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
     }
     
     
 
+    /**
+     * Finds the first topic, from the head, having a word that meets the given condition.
+     * Unlike {@link #searchWord(String)}, this scans the words, so any condition can be used.
+     * In parallel, the topics are scanned as fork/join tasks and the result is the same as a sequential scan.
+     *
+     * @param wordFilter The condition a word must meet.
+     * @param parallel   Whether to scan the topics in parallel.
+     * @return The first topic having a matching word, or null if no word matches.
+     */
+    public String findTopic(Predicate<String> wordFilter, boolean parallel) {
+        materializeAll();
+        String[] topics = new String[size];
+        WordList[] lists = new WordList[size];
+        int index = 0;
+        for (Node current = head; current != null; current = current.getNext()) {
+            topics[index] = current.getTopic();
+            lists[index++] = current.getWords();
+        }
+        long start = Instrumentation.start();
+        TopicScan scan = new TopicScan(lists);
+        int match = scan.firstMatch(wordFilter, parallel);
+        Instrumentation.record(Operation.WORD_SCAN, start, scan.getWordCount());
+        return match >= 0 ? topics[match] : null;
+    }
+
+    /**
+     * Retrieves every word of every topic that meets the given condition, sorted alphabetically.
+     * Unlike {@link #getWordsWithPrefix(String)}, this scans the words, so any condition can be used.
+     * In parallel, the topics are scanned as fork/join tasks whose sorted results are merged.
+     *
+     * @param wordFilter The condition a word must meet.
+     * @param parallel   Whether to scan the topics in parallel.
+     * @return The matching words, sorted alphabetically, with one entry per occurrence.
+     */
+    public ArrayList<String> findWords(Predicate<String> wordFilter, boolean parallel) {
+        materializeAll();
+        WordList[] lists = new WordList[size];
+        int index = 0;
+        for (Node current = head; current != null; current = current.getNext()) {
+            lists[index++] = current.getWords();
+        }
+        long start = Instrumentation.start();
+        TopicScan scan = new TopicScan(lists);
+        ArrayList<String> words = scan.collectSorted(wordFilter, parallel);
+        Instrumentation.record(Operation.WORD_SCAN, start, scan.getWordCount());
+        return words;
+    }
+
     /**
      * Extracts words starting with the specified letter from all topics and stores them in an ArrayList.
      * The extracted words are sorted alphabetically.
@@ -439,22 +830,7 @@ public class OurDLinkedList {
      * @return An ArrayList containing words starting with the specified letter from all topics, sorted alphabetically.
      */
     public ArrayList<String> extractWordsStartingWithLetter(char letter) {
-        ArrayList<String> extractedWords = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            OurLinkedList.Node wordNode = current.getWords().getHead();
-            while (wordNode != null) {
-                String word = wordNode.getData();
-                if (!word.isEmpty() && word.charAt(0) == letter) {
-                    extractedWords.add(word);
-                }
-                wordNode = wordNode.getNext();
-            }
-            current = current.getNext();
-        }
-        // Sort the extracted words
-        Collections.sort(extractedWords);
-        return extractedWords;
+        return getWordsWithPrefix(String.valueOf(letter));
     }
 
     /**
@@ -462,6 +838,7 @@ public class OurDLinkedList {
      *
      * @return The number of elements (topics) in the list.
      */
+    @Override
     public int getSize() {
         return size;
     }
@@ -470,32 +847,36 @@ public class OurDLinkedList {
      * Displays the topics in the doubly linked list in forward order.
      * If the list is empty, prints a message indicating so.
      */
+    @Override
     public void displayForward() {
         if (size == 0) {
             System.out.println("The list is empty");
         } else {
-            System.out.println("The list has " + size + " element(s):");
-            Node position = head;
-            while (position != null) {
-                System.out.println(position.topic);
-                position = position.after;
+            PrintWriter out = bufferedConsole();
+            out.println("The list has " + size + " element(s):");
+            for (String topic : this) {
+                out.println(topic);
             }
+            out.flush();
         }
     }
     /**
      * Displays the topics in the doubly linked list in backward order.
      * If the list is empty, prints a message indicating so.
      */
+    @Override
     public void displayBackward() {
         if (size == 0) {
             System.out.println("The list is empty");
         } else {
-            System.out.println("The list has " + size + " element(s):");
+            PrintWriter out = bufferedConsole();
+            out.println("The list has " + size + " element(s):");
             Node position = tail;
             while (position != null) {
-                System.out.println(position.topic);
+                out.println(position.topic);
                 position = position.before;
             }
+            out.flush();
         }
     }
     
@@ -504,13 +885,12 @@ public class OurDLinkedList {
      *
      * @return An array of strings containing the topics stored in the list.
      */
+    @Override
     public String[] getTopics() {
         String[] topics = new String[size];
-        Node current = head;
         int index = 0;
-        while (current != null) {
-            topics[index++] = current.getTopic();
-            current = current.getNext();
+        for (String topic : this) {
+            topics[index++] = topic;
         }
         return topics;
     }
@@ -525,19 +905,12 @@ public class OurDLinkedList {
         OurDLinkedList.Node chosenNode = findNodeByTopic(chosenTopic);
         if (chosenNode != null) {
             System.out.println("\nContent of topic '" + chosenTopic + "':\n");
-            OurLinkedList wordsList = chosenNode.getWords();
+            WordList wordsList = chosenNode.getWords();
             if (wordsList != null && wordsList.getSize() > 0) {
-                OurLinkedList.Node currentNode = wordsList.getHead();
-                int count = 1;
-                while (currentNode != null) {
-                    System.out.print(count + ": " + currentNode.getData() + " ");
-                    if (count%5 == 0) {
-                    	System.out.println("\n");
-                    }
-                    currentNode = currentNode.getNext();
-                    count++;
-                }
-                System.out.println();
+                PrintWriter out = bufferedConsole();
+                printWords(wordsList, 0, out);
+                out.println();
+                out.flush();
             } else {
                 System.out.println("No content available for this topic.");
             }
@@ -545,44 +918,527 @@ public class OurDLinkedList {
             System.out.println("Topic not found.");
         }
     }
+
+    /**
+     * Prints words five per line, each one preceded by its number.
+     *
+     * @param words The words to print.
+     * @param start The position of the first word in its topic, from 0.
+     * @param out   The writer receiving the words.
+     */
+    static void printWords(Iterable<String> words, int start, PrintWriter out) {
+        int count = start + 1;
+        for (String word : words) {
+            out.print(count + ": " + word + " ");
+            if (count%5 == 0) {
+                out.println("\n");
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Creates a buffered writer to the console, so that long listings are written in large blocks.
+     * It must be flushed, but not closed, once written.
+     *
+     * @return A writer to the current standard output.
+     */
+    static PrintWriter bufferedConsole() {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), DISPLAY_BUFFER_SIZE), false);
+    }
+
+    /**
+     * Retrieves the first page of the topics, in forward order. The following pages are read with {@link Page#next()},
+     * each one costing only the topics it holds.
+     *
+     * @param pageSize The maximum number of topics of a page.
+     * @return The first page of topics.
+     */
+    public Page getTopicPage(int pageSize) {
+        return Page.first(this::iterator, pageSize, size);
+    }
+
+    /**
+     * Retrieves the page of the topics starting at a position, found in logarithmic time.
+     * The following pages are read with {@link Page#next()}.
+     *
+     * @param start    The position of the first topic of the page, from 0 at the head.
+     * @param pageSize The maximum number of topics of a page.
+     * @return The page of topics starting at the position, empty if the position is the number of topics.
+     * @throws IndexOutOfBoundsException if the position is outside the list and not just past its end.
+     */
+    public Page getTopicPage(int start, int pageSize) {
+        Objects.checkIndex(start, size + 1);
+        return Page.first(() -> new NodeIterator<String>(start < size ? positions.get(start) : null) {
+            @Override
+            String valueOf(Node node) {
+                return node.getTopic();
+            }
+        }, start, pageSize, size);
+    }
+
+    /**
+     * Retrieves the first page of the words of a topic, in order. The following pages are read with {@link Page#next()},
+     * each one costing only the words it holds.
+     *
+     * @param topic    The topic whose words are paged.
+     * @param pageSize The maximum number of words of a page.
+     * @return The first page of words, or null if the topic is not found.
+     */
+    public Page getWordPage(String topic, int pageSize) {
+        WordList words = getWordsForTopic(topic);
+        return words != null ? Page.first(words::iterator, pageSize, words.getSize()) : null;
+    }
+
+    /**
+     * Retrieves the first page of the words of the topic at a position, found in logarithmic time.
+     * Unlike {@link #getWordPage(String, int)}, this reaches any occurrence of a duplicate topic.
+     *
+     * @param index    The position of the topic, from 0 at the head.
+     * @param pageSize The maximum number of words of a page.
+     * @return The first page of words.
+     * @throws IndexOutOfBoundsException if the position is outside the list.
+     */
+    public Page getWordPage(int index, int pageSize) {
+        WordList words = positions.get(index).getWords();
+        return Page.first(words::iterator, pageSize, words.getSize());
+    }
     /**
      * Saves all content (topics and their words) to a file.
      * Each topic is prefixed with '#' and followed by its associated words.
      * Topics are separated by a blank line.
+     * The content is first written to a temporary file next to the target, which then replaces
+     * the target in one step, so an interrupted save never leaves a partially written file behind.
      *
      * @param fileName The name of the file to which the content will be saved.
      */
+    @Override
     public void saveToFile(String fileName) {
         try {
-            FileWriter writer = new FileWriter(fileName);
-
-            Node current = head;
-            while (current != null) {
-            	
-                writer.write("#" + current.getTopic() + "\n");
-                System.out.println(current.getTopic());
-                OurLinkedList wordsList = current.getWords();
-                if (wordsList != null && wordsList.getSize() > 0) {
-                    OurLinkedList.Node currentNode = wordsList.getHead();
-                    while (currentNode != null) {
-                        writer.write(currentNode.getData() + "\n");
-                        currentNode = currentNode.getNext();
+            int wordCount = writeToFile(fileName);
+            System.out.println("Saved " + size + " topic(s) and " + wordCount + " word(s) to file: " + fileName);
+        } catch (IOException e) {
+            System.out.println("An error occurred while saving to file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves all content to a text file as {@link #saveToFile(String)} does, without printing anything.
+     *
+     * @param fileName The name of the file to which the content will be saved.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file; the target is then left unchanged.
+     */
+    @Override
+    public int writeToFile(String fileName) throws IOException {
+        return writeText(this, fileName);
+    }
+
+    /**
+     * Writes the topics of a list and their words to a text file, in the format read by {@link VocabularyLoader}.
+     * The content is first written to a temporary file next to the target, which then replaces it.
+     *
+     * @param topics   The topics to write.
+     * @param fileName The name of the file to which the content will be saved.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file; the target is then left unchanged.
+     */
+    static int writeText(TopicList topics, String fileName) throws IOException {
+        long start = Instrumentation.start();
+        Path target = Path.of(fileName).toAbsolutePath();
+        Path temporary = temporaryFileFor(target);
+        try {
+            int[] wordCount = {0};
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(Files.newOutputStream(temporary), StandardCharsets.UTF_8), SAVE_BUFFER_SIZE)) {
+                topics.forEachTopic((topic, words) -> {
+                    try {
+                        writer.write('#');
+                        writer.write(topic);
+                        writer.write('\n');
+                        for (String word : words) {
+                            writer.write(word);
+                            writer.write('\n');
+                        }
+                        wordCount[0] += words.getSize();
+                        writer.write('\n'); // Separate topics with a blank line
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
                     }
-                }
-                writer.write("\n"); // Separate topics with a blank line
-                current = current.getNext();
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
+            moveIntoPlace(temporary, target);
+            Instrumentation.record(Operation.SAVE, start, topics.getSize());
+            return wordCount[0];
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Retrieves the temporary file a new version of the target is written to before replacing it.
+     * The temporary file is in the same directory, so that it can be moved over the target atomically.
+     *
+     * @param target The file to be replaced.
+     * @return The temporary file for the target.
+     */
+    static Path temporaryFileFor(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Replaces the target file with the temporary file, atomically when the file system allows it.
+     *
+     * @param temporary The fully written temporary file.
+     * @param target    The file to be replaced.
+     * @throws IOException if the file cannot be moved.
+     */
+    static void moveIntoPlace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 
-            writer.close();
-            System.out.println("Content saved to file: " + fileName);
+    /**
+     * Forces the entries of a directory to the disk, so that files just created, renamed or deleted in it survive a crash.
+     * Forcing a file does not persist its directory entry. Platforms that cannot open a directory, such as Windows,
+     * offer no way to do so and are skipped.
+     *
+     * @param directory The directory to force.
+     * @throws IOException if the directory cannot be forced to the disk.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
         } catch (IOException e) {
-            System.out.println("An error occurred while saving to file: " + e.getMessage());
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+
+
+
+
+    /**
+     * Saves all content (topics and their words) to a binary snapshot file.
+     * The snapshot can be loaded back with {@link #loadSnapshot(String)} much faster than a text file.
+     *
+     * @param fileName The name of the file to which the snapshot will be saved.
+     * @return The number of words saved.
+     * @throws IOException if an I/O error occurs while writing the file.
+     * @see VocabularySnapshot
+     */
+    @Override
+    public int saveSnapshot(String fileName) throws IOException {
+        return VocabularySnapshot.write(this, fileName);
+    }
+
+    /**
+     * Loads the topics of a binary snapshot file and adds them, with their words, at the tail of the doubly linked list.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while reading the file, or if the file is not a valid snapshot.
+     * @see VocabularySnapshot
+     */
+    @Override
+    public int loadSnapshot(String fileName) throws IOException {
+        return VocabularySnapshot.read(fileName, this);
+    }
+
+    /**
+     * Loads the topics of a text vocabulary file lazily: the file is scanned once for its topics, which are added
+     * at the tail of the doubly linked list without their words. The words of a topic are read from the file when the
+     * topic is first accessed, and those of every topic before a query over all the words, such as a word search.
+     * <p>
+     * When more than the given number of topics have their words in memory, the least recently accessed one that was
+     * not changed is unloaded, to be read again on its next access. Word lists retrieved for a topic must therefore
+     * not be kept across accesses to other topics. The file must not change while topics are still to be read.
+     * <p>
+     * When a journal is attached, the words have to be recorded, so the file is loaded at once instead.
+     *
+     * @param fileName        The name of the file to load.
+     * @param maxLoadedTopics The maximum number of lazily loaded topics kept in memory, 0 for no limit.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while scanning the file.
+     * @see #loadAll()
+     */
+    public int loadLazily(String fileName, int maxLoadedTopics) throws IOException {
+        if (journal != null || concurrent) {
+            return VocabularyLoader.load(fileName, this);
+        }
+        LazyVocabularyFile file = LazyVocabularyFile.scan(fileName);
+        if (loadedLazyTopics == null) {
+            loadedLazyTopics = new LinkedHashMap<>(16, 0.75f, true);
+        }
+        this.maxLoadedTopics = maxLoadedTopics;
+        for (int i = 0; i < file.getTopicCount(); i++) {
+            linkAtTail(file.getTopic(i));
+            tail.source = file;
+            tail.sourceIndex = i;
+        }
+        return file.getTopicCount();
+    }
+
+    /**
+     * Reads the words of every topic still to be read from a lazily loaded file, and stops unloading topics.
+     * Does nothing if no topic was loaded lazily.
+     *
+     * @throws UncheckedIOException if an I/O error occurs while reading the words of a topic.
+     */
+    public void loadAll() {
+        materializeAll();
+    }
+
+    /**
+     * Retrieves the number of topics whose words are in memory.
+     *
+     * @return The number of topics not waiting to be read from a lazily loaded file.
+     */
+    public int getLoadedTopicCount() {
+        int loaded = 0;
+        for (Node current = head; current != null; current = current.after) {
+            if (current.source == null || current.loaded) {
+                loaded++;
+            }
         }
+        return loaded;
+    }
+
+    /**
+     * Reads the words of a lazily loaded topic if they are not in memory yet, and marks the topic as recently used,
+     * unloading the least recently used topics above the limit.
+     *
+     * @param node The node of the topic.
+     * @throws UncheckedIOException if an I/O error occurs while reading the words.
+     */
+    private void materialize(Node node) {
+        if (node.source == null) {
+            return;
+        }
+        if (!node.loaded) {
+            node.words.addAll(readLazyWords(node));
+            node.loaded = true;
+        }
+        loadedLazyTopics.put(node, Boolean.TRUE);
+        if (maxLoadedTopics > 0 && loadedLazyTopics.size() > maxLoadedTopics) {
+            Iterator<Node> eldest = loadedLazyTopics.keySet().iterator();
+            while (loadedLazyTopics.size() > maxLoadedTopics) {
+                unload(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Reads the words of every lazily loaded topic still to be read, then treats every topic as a regular one.
+     *
+     * @throws UncheckedIOException if an I/O error occurs while reading the words of a topic.
+     */
+    private void materializeAll() {
+        if (loadedLazyTopics == null) {
+            return;
+        }
+        maxLoadedTopics = 0;
+        for (Node current = head; current != null; current = current.after) {
+            materialize(current);
+            current.source = null;
+            current.loaded = false;
+        }
+        loadedLazyTopics = null;
+    }
+
+    /**
+     * Drops the words of a lazily loaded topic from memory and from the word indexes, to be read again on the next access.
+     *
+     * @param node The node of the topic, whose words were not changed since they were read.
+     */
+    private void unload(Node node) {
+        for (String word : node.words) {
+            unindexWord(word, node);
+        }
+        node.words = storage.newList(node);
+        node.loaded = false;
+    }
+
+    /**
+     * Retrieves the words of a topic without keeping them in memory if they are still to be read from a lazily loaded file.
+     *
+     * @param node The node of the topic.
+     * @return The words of the topic; a list of its own, not indexed, if they were read for the occasion.
+     * @throws UncheckedIOException if an I/O error occurs while reading the words.
+     */
+    private WordList peekWords(Node node) {
+        if (node.source == null || node.loaded) {
+            return node.words;
+        }
+        WordList words = storage.newList(null);
+        words.addAll(readLazyWords(node));
+        return words;
+    }
+
+    /**
+     * Reads the words of a lazily loaded topic from its file.
+     *
+     * @param node The node of the topic.
+     * @return The words of the topic, in order.
+     * @throws UncheckedIOException if an I/O error occurs while reading the words.
+     */
+    private ArrayList<String> readLazyWords(Node node) {
+        try {
+            return node.source.readWords(node.sourceIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading the words of topic '" + node.topic + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Performs the given action on each topic of the doubly linked list, in forward order.
+     *
+     * @param action The action receiving each topic and its list of words.
+     */
+    @Override
+    public void forEachTopic(BiConsumer<String, WordList> action) {
+        Node current = head;
+        while (current != null) {
+            action.accept(current.getTopic(), peekWords(current));
+            current = current.getNext();
+        }
+    }
+
+    /**
+     * Retrieves an iterator over the topics of the doubly linked list, in forward order.
+     * The iterator is fail-fast: it throws a {@link ConcurrentModificationException} if topics are
+     * added or removed during the iteration. Changing the words of a topic is allowed.
+     *
+     * @return An iterator over the topics.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new NodeIterator<String>() {
+            @Override
+            String valueOf(Node node) {
+                return node.getTopic();
+            }
+        };
+    }
+
+    /**
+     * Retrieves an iterator over the topics of the doubly linked list, in backward order.
+     * Like {@link #iterator()}, it is fail-fast for topics added or removed during the iteration.
+     *
+     * @return An iterator over the topics, from tail to head.
+     */
+    @Override
+    public Iterator<String> descendingIterator() {
+        return new NodeIterator<String>(tail, true) {
+            @Override
+            String valueOf(Node node) {
+                return node.getTopic();
+            }
+        };
+    }
+
+    /**
+     * Retrieves a spliterator over the topics of the doubly linked list, in forward order.
+     * It knows the number of topics, and splits off batches of topics so that parallel streams share the work.
+     *
+     * @return A spliterator over the topics.
+     */
+    @Override
+    public Spliterator<String> spliterator() {
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Retrieves a sequential stream of the topics, in forward order.
+     *
+     * @return A stream of the topics.
+     */
+    public Stream<String> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Retrieves a parallel stream of the topics.
+     *
+     * @return A parallel stream of the topics.
+     */
+    public Stream<String> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 
+    /**
+     * Retrieves a sequential stream of every (topic, word) pair, topic by topic in forward order,
+     * and word by word in the order of each topic.
+     *
+     * @return A stream of entries whose key is a topic and whose value is one of its words.
+     */
+    public Stream<Map.Entry<String, String>> entryStream() {
+        return StreamSupport.stream(entrySpliterator(), false);
+    }
+
+    /**
+     * Retrieves a parallel stream of every (topic, word) pair.
+     * The pairs are split into batches regardless of topic boundaries, so that a few large topics are still shared out.
+     *
+     * @return A parallel stream of entries whose key is a topic and whose value is one of its words.
+     */
+    public Stream<Map.Entry<String, String>> parallelEntryStream() {
+        return StreamSupport.stream(entrySpliterator(), true);
+    }
 
+    /**
+     * Retrieves a spliterator over every (topic, word) pair, sized with the total number of words.
+     * It is fail-fast for changes to the topics as well as to the words of the topic being iterated over.
+     *
+     * @return A spliterator over the (topic, word) pairs.
+     */
+    private Spliterator<Map.Entry<String, String>> entrySpliterator() {
+        materializeAll();
+        Iterator<Map.Entry<String, String>> entries = new Iterator<Map.Entry<String, String>>() {
+            private final Iterator<Node> nodes = new NodeIterator<Node>() {
+                @Override
+                Node valueOf(Node node) {
+                    return node;
+                }
+            };
+            private String topic;
+            private Iterator<String> words = Collections.emptyIterator();
 
+            @Override
+            public boolean hasNext() {
+                while (!words.hasNext() && nodes.hasNext()) {
+                    Node node = nodes.next();
+                    topic = node.getTopic();
+                    words = node.getWords().iterator();
+                }
+                return words.hasNext();
+            }
 
+            @Override
+            public Map.Entry<String, String> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return Map.entry(topic, words.next());
+            }
+        };
+        // The prefix index is empty when words are not indexed, so the words are counted topic by topic
+        long wordCount = 0;
+        for (Node node = head; node != null; node = node.after) {
+            wordCount += node.getWords().getSize();
+        }
+        return Spliterators.spliterator(entries, wordCount, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
 
     /**
      * Finds the node in the doubly linked list with the specified topic.
@@ -591,25 +1447,214 @@ public class OurDLinkedList {
      * @return The node containing the specified topic, or null if the topic is not found.
      */
     public Node findNodeByTopic(String topic) {
-        Node current = head;
-        while (current != null) {
-            if (current.getTopic().equals(topic)) {
-                return current;
+        long start = Instrumentation.start();
+        Node node = topicIndex.get(topic); // null if topic not found
+        Instrumentation.record(Operation.TOPIC_LOOKUP, start, 0);
+        return node;
+    }
+
+    /**
+     * Records a newly linked node in the topic index.
+     * The index keeps the first occurrence of each topic, so a duplicate topic only
+     * replaces the indexed node when it was linked closer to the head.
+     *
+     * @param node The node that has just been linked into the list and the position tree.
+     */
+    private void indexTopic(Node node) {
+        Node first = topicIndex.get(node.topic);
+        if (first == null || positions.indexOf(node.position) < positions.indexOf(first.position)) {
+            topicIndex.put(node.topic, node);
+        }
+    }
+
+    /**
+     * Drops a node that has just been unlinked from the topic and word indexes.
+     * Later changes to the words of the removed topic are no longer indexed.
+     *
+     * @param node The node that has just been unlinked from the list.
+     * @return The number of nodes gone through to find the next occurrence of the topic.
+     */
+    private int unindexNode(Node node) {
+        int traversed = unindexTopic(node);
+        node.detached = true;
+        if (loadedLazyTopics != null) {
+            loadedLazyTopics.remove(node);
+        }
+        if (!indexWords) {
+            // Nothing to unindex: drop the cached results instead of decoding every word
+            queryCache.clear();
+            return traversed;
+        }
+        for (String word : node.words) {
+            unindexWord(word, node);
+        }
+        return traversed;
+    }
+
+    /**
+     * Records one occurrence of a word in the given topic node.
+     *
+     * @param word The word that was added to the topic.
+     * @param node The node of the topic.
+     */
+    private void indexWord(String word, Node node) {
+        String folded = foldCase(word);
+        if (!indexWords) {
+            queryCache.invalidateWord(word, folded);
+            return;
+        }
+        wordIndex.compute(folded, (key, topicsOfWord) -> {
+            if (topicsOfWord == null) {
+                topicsOfWord = concurrent ? new ConcurrentHashMap<>(2) : new HashMap<>(2);
             }
-            current = current.getNext();
+            topicsOfWord.merge(node, 1, Integer::sum);
+            return topicsOfWord;
+        });
+        prefixIndex.add(word);
+        // Invalidate after updating the indexes, so a query racing with the change cannot cache the old results
+        queryCache.invalidateWord(word, folded);
+    }
+
+    /**
+     * Forgets one occurrence of a word in the given topic node.
+     *
+     * @param word The word that was removed from the topic.
+     * @param node The node of the topic.
+     */
+    private void unindexWord(String word, Node node) {
+        String folded = foldCase(word);
+        if (!indexWords) {
+            queryCache.invalidateWord(word, folded);
+            return;
         }
-        return null; // Topic not found
+        wordIndex.computeIfPresent(folded, (key, topicsOfWord) -> {
+            topicsOfWord.computeIfPresent(node, (topicNode, count) -> count > 1 ? count - 1 : null);
+            return topicsOfWord.isEmpty() ? null : topicsOfWord;
+        });
+        prefixIndex.remove(word);
+        queryCache.invalidateWord(word, folded);
     }
+
+    /**
+     * Folds the case of a word so that lookups ignore case.
+     *
+     * @param word The word to fold.
+     * @return The word in lower case.
+     */
+    static String foldCase(String word) {
+        return word.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Drops a node that has just been unlinked from the topic index.
+     * If the node was the indexed occurrence of a duplicated topic, the next occurrence takes its place.
+     *
+     * @param node The node that has just been unlinked from the list.
+     * @return The number of nodes gone through to find the next occurrence of the topic.
+     */
+    private int unindexTopic(Node node) {
+        if (topicIndex.get(node.topic) != node) {
+            return 0;
+        }
+        topicIndex.remove(node.topic);
+        int traversed = 0;
+        // Only look for another occurrence when the list holds duplicate topics at all
+        if (size > topicIndex.size()) {
+            Node position = node.after;
+            while (position != null && !position.topic.equals(node.topic)) {
+                position = position.after;
+                traversed++;
+            }
+            if (position != null) {
+                topicIndex.put(node.topic, position);
+            }
+        }
+        return traversed;
+    }
+    /**
+     * Iterates over the nodes of the doubly linked list in forward order, failing fast when topics are added or removed.
+     *
+     * @param <T> The type of the values produced from each node.
+     */
+    private abstract class NodeIterator<T> implements Iterator<T> {
+        private Node position;
+        private final boolean descending;
+        private final int expectedModCount = modCount;
+
+        /**
+         * Constructs an iterator starting at the head.
+         */
+        NodeIterator() {
+            this(head);
+        }
+
+        /**
+         * Constructs an iterator starting at the given node, going towards the tail.
+         *
+         * @param first The first node reached, or null for an empty iteration.
+         */
+        NodeIterator(Node first) {
+            this(first, false);
+        }
+
+        /**
+         * Constructs an iterator starting at the given node.
+         *
+         * @param first      The first node reached, or null for an empty iteration.
+         * @param descending true to go towards the head, false to go towards the tail.
+         */
+        NodeIterator(Node first, boolean descending) {
+            this.position = first;
+            this.descending = descending;
+        }
+
+        /**
+         * Retrieves the value produced for a node.
+         *
+         * @param node The node reached by the iterator.
+         * @return The value for that node.
+         */
+        abstract T valueOf(Node node);
+
+        @Override
+        public boolean hasNext() {
+            return position != null;
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (position == null) {
+                throw new NoSuchElementException();
+            }
+            Node node = position;
+            position = descending ? position.before : position.after;
+            return valueOf(node);
+        }
+    }
+
     /**
      * Inner class representing a node in the doubly linked list.
      */
-    private class Node {
+    private class Node implements WordListener {
 
 //        private int value;
         private Node before;
         private Node after;
         private String topic;
-    	private OurLinkedList words;
+    	private WordList words;
+    	/** The entry of the node in the position tree. */
+    	private PositionTree.Entry<Node> position;
+    	/** Set once the node is removed from the list, so its words are no longer indexed. */
+    	private boolean detached;
+    	/** The file the words are read from on first access, or null once they belong to the node. */
+    	private LazyVocabularyFile source;
+    	/** The index of the topic in the file it is read from. */
+    	private int sourceIndex;
+    	/** Whether the words read from the file are in memory. */
+    	private boolean loaded;
     	/**
          * Constructs a new node with the specified topic, previous node, and next node.
          *
@@ -618,11 +1663,11 @@ public class OurDLinkedList {
          * @param after  The node after this node.
          */
         public Node(String topic, Node before, Node after) {
-            this.topic = topic;
+            this.topic = WordPool.intern(topic);
             this.before = before;
             this.after = after;
             
-            this.words = new OurLinkedList();
+            this.words = storage.newList(this);
             
         }
         
@@ -649,9 +1694,50 @@ public class OurDLinkedList {
          *
          * @return The linked list of words.
          */
-        public OurLinkedList getWords() {
+        public WordList getWords() {
+            materialize(this);
             return words;
         }
+
+        /**
+         * Indexes a word added to this topic.
+         *
+         * @param word The word that was added.
+         */
+        @Override
+        public void wordAdded(String word) {
+            if (!detached) {
+                indexWord(word, this);
+            }
+            keepChanges();
+        }
+
+        /**
+         * Unindexes a word removed from this topic.
+         *
+         * @param word The word that was removed.
+         */
+        @Override
+        public void wordRemoved(String word) {
+            if (!detached) {
+                unindexWord(word, this);
+            }
+            keepChanges();
+        }
+
+        /**
+         * Makes the words of a lazily loaded topic belong to the node once they are changed,
+         * so that the topic is never unloaded and the changes never lost.
+         */
+        private void keepChanges() {
+            if (loaded) {
+                source = null;
+                loaded = false;
+                if (loadedLazyTopics != null) {
+                    loadedLazyTopics.remove(this);
+                }
+            }
+        }
         	
     }
 
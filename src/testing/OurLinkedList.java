@@ -1,29 +1,90 @@
 package testing;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import testing.Instrumentation.Operation;
+
 /**
  * Represents a singly linked list.
+ * When instrumented, operations report the number of nodes they went through.
+ * <p>
+ * Values are stored as their {@link WordPool} instances, so values are looked for by reference,
+ * and a value the pool does not know is not looked for at all.
+ * <p>
+ * A list can be made to keep its words distinct: a value already in the list is then not added again, and a hash map
+ * gives the node preceding each value, so finding, removing or replacing a value, and removing the last one,
+ * take constant time instead of going through the list.
  */
 
-public class OurLinkedList {
+public class OurLinkedList implements WordList {
 
     private Node head;
-    //private Node tail;
+    private Node tail;
     private int size;
+    /** Number of structural changes (words added or removed), used by iterators to detect concurrent modifications. */
+    private int modCount;
+    /** Notified of every word added to or removed from the list, may be null. */
+    private WordListener listener;
+    /** Node preceding each value, mapped to null for the head, if the list keeps its words distinct; null otherwise. */
+    private HashMap<String, Node> predecessors;
     /**
      * Constructs an empty linked list.
      */
     public OurLinkedList() {
         head = null;
+        tail = null;
         size = 0;
     }
 
+    /**
+     * Constructs an empty linked list that reports its word changes to the given listener.
+     *
+     * @param listener The listener to notify whenever a word is added or removed.
+     */
+    OurLinkedList(WordListener listener) {
+        this();
+        this.listener = listener;
+    }
+
+    /**
+     * Constructs an empty linked list that reports its word changes to the given listener,
+     * and that may keep its words distinct.
+     *
+     * @param listener The listener to notify whenever a word is added or removed, may be null.
+     * @param distinct Whether values already in the list are not added again, and are found through a hash map.
+     */
+    OurLinkedList(WordListener listener, boolean distinct) {
+        this(listener);
+        if (distinct) {
+            predecessors = new HashMap<>();
+        }
+    }
+
     /**
      * Adds a new node with the specified value at the beginning of the linked list.
      *
      * @param newValue The value to be added at the beginning of the linked list.
      */
+    @Override
     public void addAtHead(String newValue) {
+        newValue = WordPool.intern(newValue);
+        if (isDistinctMember(newValue)) {
+            return;
+        }
+        long start = Instrumentation.start();
         head = new Node(newValue, head);
+        if (tail == null) {
+            tail = head;
+        }
+        linked(head, null);
+        modCount++;
         size++;
+        added(newValue);
+        Instrumentation.record(Operation.WORD_INSERT, start, 0);
     }
 
     /**
@@ -32,17 +93,70 @@ public class OurLinkedList {
      *
      * @param newValue The value to be added at the end of the linked list.
      */
+    @Override
     public void addAtEnd(String newValue) {
         if (head == null) {
             addAtHead(newValue);
+            return;
+        }
+        newValue = WordPool.intern(newValue);
+        if (!isDistinctMember(newValue)) {
+            long start = Instrumentation.start();
+            tail.next = new Node(newValue, null);
+            linked(tail.next, tail);
+            tail = tail.next;
+            modCount++;
+            size++;
+            added(newValue);
+            Instrumentation.record(Operation.WORD_INSERT, start, 0);
+        }
+    }
+
+    /**
+     * Adds all the given values at the end of the linked list, keeping their order.
+     * The new nodes are linked together first and then attached to the tail in a single step.
+     * If the list keeps its words distinct, the values it already holds, or that appear earlier among the new values, are skipped.
+     *
+     * @param newValues The values to be added at the end of the linked list.
+     */
+    @Override
+    public void addAll(Collection<String> newValues) {
+        Node first = null;
+        Node last = null;
+        int count = 0;
+        for (String value : newValues) {
+            String newValue = WordPool.intern(value);
+            if (predecessors != null) {
+                if (predecessors.containsKey(newValue)) {
+                    continue;
+                }
+                predecessors.put(newValue, last == null ? tail : last);
+            }
+            count++;
+            Node newNode = new Node(newValue, null);
+            if (first == null) {
+                first = newNode;
+            } else {
+                last.next = newNode;
+            }
+            last = newNode;
+        }
+        if (first == null) {
+            return; // Nothing to add
+        }
+        if (head == null) {
+            head = first;
         } else {
-            Node position = head;
-            while (position.next != null) {
-                position = position.next;
+            tail.next = first;
+        }
+        tail = last;
+        modCount++;
+        size += count;
+        if (listener != null) {
+            for (Node node = first; node != null; node = node.next) {
+                listener.wordAdded(node.data);
             }
-            position.next = new Node(newValue, null);
-            size++;
-        } 
+        }
     }
     
 
@@ -53,15 +167,39 @@ public class OurLinkedList {
      * @param value    The value after which the new node should be added.
      * @param newValue The value to be added.
      */
+    @Override
     public void addAfter(String value, String newValue) {
-        Node position = head;
-        while (position != null && position.data != value) {
-            position = position.next;
+        value = WordPool.find(value);
+        if (value == null) {
+            return;
+        }
+        newValue = WordPool.intern(newValue);
+        if (isDistinctMember(newValue)) {
+            return;
+        }
+        long start = Instrumentation.start();
+        int traversed = 0;
+        Node position;
+        if (predecessors != null) {
+            position = nodeOf(value);
+        } else {
+            position = head;
+            while (position != null && position.data != value) {
+                position = position.next;
+                traversed++;
+            }
         }
         if (position != null) {
             position.next = new Node(newValue, position.next);
+            if (position == tail) {
+                tail = position.next;
+            }
+            linked(position.next, position);
+            modCount++;
             size++;
+            added(newValue);
         }
+        Instrumentation.record(Operation.WORD_INSERT, start, traversed);
     }
 
     /**
@@ -69,14 +207,15 @@ public class OurLinkedList {
      *
      * @return The value removed from the head of the linked list, or null if the list is empty.
      */
+    @Override
     public String removeHead() {
         if (head == null) {
             return null;
         } else {
-            Node temp = head;
-            head = head.next;
-            size--;
-            return temp.data;
+            long start = Instrumentation.start();
+            String value = unlinkAfter(null);
+            Instrumentation.record(Operation.WORD_REMOVE, start, 0);
+            return value;
         }
     }
 
@@ -85,22 +224,27 @@ public class OurLinkedList {
      *
      * @return The value removed from the end of the linked list, or null if the list is empty.
      */
+    @Override
     public String removeEnd() {
         if (head == null) {
             return null;
         } else if (size == 1) {
-            String value = head.data;
-            head = null;
-            size--;
-            return value;
+            return unlinkAfter(null);
         } else {
-            Node position = head;
-            while (position.next.next != null) {
-                position = position.next;
+            long start = Instrumentation.start();
+            Node position;
+            int traversed = 0;
+            if (predecessors != null) {
+                position = predecessors.get(tail.data);
+            } else {
+                position = head;
+                while (position.next.next != null) {
+                    position = position.next;
+                    traversed++;
+                }
             }
-            String value = position.next.data;
-            position.next = null;
-            size--;
+            String value = unlinkAfter(position);
+            Instrumentation.record(Operation.WORD_REMOVE, start, traversed);
             return value;
         }
     }
@@ -111,27 +255,28 @@ public class OurLinkedList {
      * @param valueToRemove The value to be removed from the linked list.
      * @return The value removed from the linked list, or null if the specified value is not found.
      */
+    @Override
     public String removeValue(String valueToRemove) {
-        if (head == null) {
-            return null;
-        } else if (head.data == valueToRemove) {
-            Node temp = head;
-            head = head.next;
-            size--;
-            return temp.data;
-        } else {
-            Node position = head;
-            while (position.next != null && position.next.data != valueToRemove) {
-                position = position.next;
-            }
-            if (position.next != null) {
-                Node temp = position.next;
-                position.next = position.next.next;
-                size--;
-                return temp.data;
-            } else {
+        long start = Instrumentation.start();
+        int traversed = 0;
+        valueToRemove = WordPool.find(valueToRemove);
+        try {
+            if (head == null || valueToRemove == null) {
                 return null;
+            } else if (predecessors != null) {
+                return predecessors.containsKey(valueToRemove) ? unlinkAfter(predecessors.get(valueToRemove)) : null;
+            } else if (head.data == valueToRemove) {
+                return unlinkAfter(null);
+            } else {
+                Node position = head;
+                while (position.next != null && position.next.data != valueToRemove) {
+                    position = position.next;
+                    traversed++;
+                }
+                return position.next != null ? unlinkAfter(position) : null;
             }
+        } finally {
+            Instrumentation.record(Operation.WORD_REMOVE, start, traversed);
         }
     }
 
@@ -141,22 +286,53 @@ public class OurLinkedList {
      * @param data The value after which the value to be removed is located.
      * @return The value removed from the linked list, or null if the specified value is not found or if there are less than 2 elements in the list.
      */
+    @Override
     public String removeAfter(String data) {
-        if (size < 2) {
+        data = WordPool.find(data);
+        if (size < 2 || data == null) {
             return null;
         } else {
-            Node position = head;
-            while (position != null && position.data != data) {
-                position = position.next;
-            }
-            if (position == null || position.next == null) {
-                return null;
+            long start = Instrumentation.start();
+            int traversed = 0;
+            Node position;
+            if (predecessors != null) {
+                position = nodeOf(data);
             } else {
-                String tempValue = position.next.data;
-                position.next = position.next.next;
-                return tempValue;
+                position = head;
+                while (position != null && position.data != data) {
+                    position = position.next;
+                    traversed++;
+                }
+            }
+            String tempValue = null;
+            if (position != null && position.next != null) {
+                tempValue = unlinkAfter(position);
+            }
+            Instrumentation.record(Operation.WORD_REMOVE, start, traversed);
+            return tempValue;
+        }
+    }
+
+    /**
+     * Checks whether the linked list holds a value equal to the given one.
+     *
+     * @param value The value to look for.
+     * @return true if the value is in the linked list.
+     */
+    @Override
+    public boolean contains(String value) {
+        value = WordPool.find(value);
+        if (value == null) {
+            return false;
+        } else if (predecessors != null) {
+            return predecessors.containsKey(value);
+        }
+        for (Node position = head; position != null; position = position.next) {
+            if (position.data == value) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -164,6 +340,7 @@ public class OurLinkedList {
      *
      * @return The number of nodes in the linked list.
      */
+    @Override
     public int getSize() {
         return size;
     }
@@ -172,6 +349,7 @@ public class OurLinkedList {
      * Displays the content of the linked list.
      * If the list is empty, prints a message indicating so.
      */
+    @Override
     public void display() {
         if (size == 0) {
             System.out.println("Your list is empty.");
@@ -190,12 +368,84 @@ public class OurLinkedList {
      *
      * @return The first word stored in the linked list, or null if the list is empty.
      */
+    @Override
     public String getFirstWord() {
         if (head == null) {
             return null; // List is empty
         }
         return head.getWord(); // Assuming getWord() method is defined in Node class
     }
+    /**
+     * Replaces the first value equal to the old value with the new value, keeping its position.
+     * If the list keeps its words distinct and already holds the new value elsewhere, the old value is removed instead.
+     *
+     * @param oldValue The value to be replaced.
+     * @param newValue The value replacing it.
+     * @return true if the old value was found and replaced.
+     */
+    @Override
+    public boolean replace(String oldValue, String newValue) {
+        oldValue = WordPool.find(oldValue);
+        if (oldValue == null) {
+            return false;
+        }
+        long start = Instrumentation.start();
+        int traversed = 0;
+        Node position;
+        if (predecessors != null) {
+            position = nodeOf(oldValue);
+            if (position != null && !oldValue.equals(newValue) && predecessors.containsKey(newValue)) {
+                unlinkAfter(predecessors.get(oldValue));
+                Instrumentation.record(Operation.WORD_REPLACE, start, 0);
+                return true;
+            }
+        } else {
+            position = head;
+            while (position != null && position.data != oldValue) {
+                position = position.next;
+                traversed++;
+            }
+        }
+        if (position != null) {
+            position.setData(newValue);
+        }
+        Instrumentation.record(Operation.WORD_REPLACE, start, traversed);
+        return position != null;
+    }
+
+    /**
+     * Retrieves an iterator over the values of the linked list, from head to end.
+     * The iterator is fail-fast: it throws a {@link ConcurrentModificationException} if values are
+     * added to or removed from the list during the iteration, other than through {@link #replace(String, String)}.
+     *
+     * @return An iterator over the values of the linked list.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private Node position = head;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return position != null;
+            }
+
+            @Override
+            public String next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position == null) {
+                    throw new NoSuchElementException();
+                }
+                String value = position.data;
+                position = position.next;
+                return value;
+            }
+        };
+    }
+
     /**
      * Retrieves the head node of the linked list.
      *
@@ -205,6 +455,96 @@ public class OurLinkedList {
         return head;
     }
 
+    /**
+     * Checks whether the list keeps its words distinct and already holds a value, which is then not added again.
+     *
+     * @param value The value about to be added.
+     * @return true if the value must not be added.
+     */
+    private boolean isDistinctMember(String value) {
+        return predecessors != null && predecessors.containsKey(value);
+    }
+
+    /**
+     * Finds the node of a value through the hash map of a list keeping its words distinct.
+     *
+     * @param value The value to look for.
+     * @return The node holding the value, or null if the value is not in the list.
+     */
+    private Node nodeOf(String value) {
+        if (!predecessors.containsKey(value)) {
+            return null;
+        }
+        Node previous = predecessors.get(value);
+        return previous == null ? head : previous.next;
+    }
+
+    /**
+     * Records where a node that was just linked is, and that it now precedes the node following it,
+     * if the list keeps its words distinct.
+     *
+     * @param node     The node that was linked.
+     * @param previous The node preceding it, or null if it is the head.
+     */
+    private void linked(Node node, Node previous) {
+        if (predecessors != null) {
+            predecessors.put(node.data, previous);
+            if (node.next != null) {
+                predecessors.put(node.next.data, node);
+            }
+        }
+    }
+
+    /**
+     * Unlinks the node following another one, or the head.
+     *
+     * @param previous The node preceding the node to unlink, or null to unlink the head.
+     * @return The value of the unlinked node.
+     */
+    private String unlinkAfter(Node previous) {
+        Node node = previous == null ? head : previous.next;
+        if (previous == null) {
+            head = node.next;
+        } else {
+            previous.next = node.next;
+        }
+        if (node == tail) {
+            tail = previous;
+        }
+        if (predecessors != null) {
+            predecessors.remove(node.data);
+            if (node.next != null) {
+                predecessors.put(node.next.data, previous);
+            }
+        }
+        modCount++;
+        size--;
+        removed(node.data);
+        return node.data;
+    }
+
+    /**
+     * Reports an added word to the listener, if any.
+     *
+     * @param word The word that was added.
+     */
+    private void added(String word) {
+        if (listener != null) {
+            listener.wordAdded(word);
+        }
+    }
+
+    /**
+     * Reports a removed word to the listener, if any.
+     *
+     * @param word The word that was removed.
+     */
+    private void removed(String word) {
+        if (listener != null) {
+            listener.wordRemoved(word);
+        }
+    }
+
     /**
      * Represents a node in a linked list.
      */
@@ -244,9 +584,20 @@ public class OurLinkedList {
          * Sets the data stored in the node.
          *
          * @param data The data to be stored in the node.
+         * @throws IllegalArgumentException if the list keeps its words distinct and holds the data in another node.
          */
         public void setData(String data) {
+            String oldData = this.data;
+            data = WordPool.intern(data);
+            if (predecessors != null && !data.equals(oldData)) {
+                if (predecessors.containsKey(data)) {
+                    throw new IllegalArgumentException("'" + data + "' is already in the list");
+                }
+                predecessors.put(data, predecessors.remove(oldData));
+            }
             this.data = data;
+            removed(oldData);
+            added(data);
         }
         /**
          * Retrieves the reference to the next node.
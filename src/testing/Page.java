@@ -0,0 +1,142 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Represents one page of a sequence of topics or words, with a cursor to the following page.
+ * <p>
+ * A page keeps the iterator it was read from, so the next page continues where it stopped and costs only
+ * the items it holds. If the sequence changed in between, making the iterator fail, the next page starts over
+ * from a fresh iterator and skips the items already shown, so paging goes on from the same position.
+ */
+public final class Page {
+
+    private final Supplier<Iterator<String>> source;
+    private final Iterator<String> remaining;
+    /** The position in the sequence of the first item of the source. */
+    private final int origin;
+    private final int start;
+    private final int pageSize;
+    private final int total;
+    private final List<String> items;
+    /** The page following this one, once read. */
+    private Page following;
+
+    /**
+     * Constructs a page by reading up to one page of items from an iterator.
+     *
+     * @param source    Creates an iterator over the sequence, from the item at the origin.
+     * @param remaining The iterator positioned at the first item of the page.
+     * @param origin    The position of the first item of the source in the sequence, from 0.
+     * @param start     The position of the first item of the page in the sequence, from 0.
+     * @param pageSize  The maximum number of items of a page.
+     * @param total     The number of items of the sequence.
+     */
+    private Page(Supplier<Iterator<String>> source, Iterator<String> remaining, int origin, int start, int pageSize, int total) {
+        this.source = source;
+        this.remaining = remaining;
+        this.origin = origin;
+        this.start = start;
+        this.pageSize = pageSize;
+        this.total = total;
+        ArrayList<String> read = new ArrayList<>(Math.min(pageSize, Math.max(0, total - start)));
+        while (read.size() < pageSize && remaining.hasNext()) {
+            read.add(remaining.next());
+        }
+        this.items = Collections.unmodifiableList(read);
+    }
+
+    /**
+     * Reads the first page of a sequence.
+     *
+     * @param source   Creates an iterator over the whole sequence, from its first item.
+     * @param pageSize The maximum number of items of a page.
+     * @param total    The number of items of the sequence.
+     * @return The first page.
+     * @throws IllegalArgumentException if the page size is not positive.
+     */
+    static Page first(Supplier<Iterator<String>> source, int pageSize, int total) {
+        return first(source, 0, pageSize, total);
+    }
+
+    /**
+     * Reads the page of a sequence starting at a given position.
+     *
+     * @param source   Creates an iterator over the sequence, from the item at the given position.
+     * @param start    The position of the first item of the page, from 0.
+     * @param pageSize The maximum number of items of a page.
+     * @param total    The number of items of the sequence.
+     * @return The page starting at the position.
+     * @throws IllegalArgumentException if the page size is not positive.
+     */
+    static Page first(Supplier<Iterator<String>> source, int start, int pageSize, int total) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        return new Page(source, source.get(), start, start, pageSize, total);
+    }
+
+    /**
+     * Reads the page following this one. Calling it again returns the same page.
+     *
+     * @return The next page, empty if this page was the last one.
+     */
+    public Page next() {
+        if (following != null) {
+            return following;
+        }
+        int nextStart = start + items.size();
+        try {
+            following = new Page(source, remaining, origin, nextStart, pageSize, total);
+        } catch (ConcurrentModificationException e) {
+            // The sequence changed since this page was read: skip what was shown in a fresh iteration
+            Iterator<String> restarted = source.get();
+            for (int i = origin; i < nextStart && restarted.hasNext(); i++) {
+                restarted.next();
+            }
+            following = new Page(source, restarted, origin, nextStart, pageSize, total);
+        }
+        return following;
+    }
+
+    /**
+     * Retrieves the items of the page.
+     *
+     * @return The items of the page, in order; the list cannot be modified.
+     */
+    public List<String> getItems() {
+        return items;
+    }
+
+    /**
+     * Retrieves the position of the first item of the page in the sequence.
+     *
+     * @return The position of the first item, from 0.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Retrieves the number of items of the sequence when the first page was read.
+     *
+     * @return The number of items of the whole sequence.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Checks whether items follow this page.
+     *
+     * @return true if the next page has items.
+     */
+    public boolean hasMore() {
+        return remaining.hasNext();
+    }
+}
@@ -0,0 +1,244 @@
+package testing;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Represents a sequence of values indexed by position, stored as an implicit treap.
+ * <p>
+ * The values are kept in a binary tree whose in-order traversal gives the sequence, each entry knowing the size of its
+ * subtree, so the position of a value is the number of values to its left. Each entry also has a random priority and
+ * the tree is kept a heap on those priorities, which keeps its expected depth logarithmic whatever the order of the
+ * changes. Getting, inserting or removing a value at a position, and finding the position of an entry, all take
+ * O(log n) expected time.
+ * <p>
+ * Inserting returns the entry holding the value, which can later be removed or located without searching.
+ *
+ * @param <T> The type of the values.
+ */
+class PositionTree<T> {
+
+    private final SplittableRandom random = new SplittableRandom();
+    private Entry<T> root;
+
+    /**
+     * Represents the place of one value in the tree.
+     *
+     * @param <T> The type of the value.
+     */
+    static final class Entry<T> {
+        private final T value;
+        private final int priority;
+        private Entry<T> parent;
+        private Entry<T> left;
+        private Entry<T> right;
+        /** Number of entries of the subtree rooted at this entry. */
+        private int size = 1;
+
+        /**
+         * Constructs a detached entry.
+         *
+         * @param value    The value held by the entry.
+         * @param priority The random priority of the entry.
+         */
+        private Entry(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        /**
+         * Retrieves the value held by the entry.
+         *
+         * @return The value.
+         */
+        T getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Retrieves the number of values of the sequence.
+     *
+     * @return The number of values.
+     */
+    int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Retrieves the value at a position.
+     *
+     * @param index The position of the value, from 0.
+     * @return The value at that position.
+     * @throws IndexOutOfBoundsException if the position is outside the sequence.
+     */
+    T get(int index) {
+        Objects.checkIndex(index, size());
+        Entry<T> entry = root;
+        while (true) {
+            int leftSize = sizeOf(entry.left);
+            if (index < leftSize) {
+                entry = entry.left;
+            } else if (index == leftSize) {
+                return entry.value;
+            } else {
+                index -= leftSize + 1;
+                entry = entry.right;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the position of an entry in the sequence.
+     *
+     * @param entry An entry of this tree.
+     * @return The position of its value, from 0.
+     */
+    int indexOf(Entry<T> entry) {
+        int index = sizeOf(entry.left);
+        for (Entry<T> child = entry, parent = entry.parent; parent != null; child = parent, parent = parent.parent) {
+            if (parent.right == child) {
+                index += sizeOf(parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Inserts a value at a position, shifting the values from that position on.
+     *
+     * @param index The position of the new value, from 0 to the number of values.
+     * @param value The value to insert.
+     * @return The entry holding the new value.
+     * @throws IndexOutOfBoundsException if the position is outside the sequence and not just past its end.
+     */
+    Entry<T> insert(int index, T value) {
+        Objects.checkIndex(index, size() + 1);
+        Entry<T> entry = new Entry<>(value, random.nextInt());
+        if (root == null) {
+            root = entry;
+            return entry;
+        }
+        // Go down to an empty place, counting the new entry in every subtree it enters
+        Entry<T> parent = root;
+        while (true) {
+            parent.size++;
+            int leftSize = sizeOf(parent.left);
+            if (index <= leftSize) {
+                if (parent.left == null) {
+                    parent.left = entry;
+                    break;
+                }
+                parent = parent.left;
+            } else {
+                index -= leftSize + 1;
+                if (parent.right == null) {
+                    parent.right = entry;
+                    break;
+                }
+                parent = parent.right;
+            }
+        }
+        entry.parent = parent;
+        // Restore the heap order on priorities
+        while (entry.parent != null && entry.parent.priority < entry.priority) {
+            rotateUp(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Inserts a value just after the value of an entry.
+     *
+     * @param entry An entry of this tree.
+     * @param value The value to insert.
+     * @return The entry holding the new value.
+     */
+    Entry<T> insertAfter(Entry<T> entry, T value) {
+        return insert(indexOf(entry) + 1, value);
+    }
+
+    /**
+     * Inserts a value just before the value of an entry.
+     *
+     * @param entry An entry of this tree.
+     * @param value The value to insert.
+     * @return The entry holding the new value.
+     */
+    Entry<T> insertBefore(Entry<T> entry, T value) {
+        return insert(indexOf(entry), value);
+    }
+
+    /**
+     * Removes an entry from the sequence, shifting the values after it.
+     *
+     * @param entry An entry of this tree.
+     */
+    void remove(Entry<T> entry) {
+        // Rotate the entry down until it is a leaf, keeping the heap order among the others
+        while (entry.left != null || entry.right != null) {
+            Entry<T> child = entry.right == null
+                    || (entry.left != null && entry.left.priority > entry.right.priority) ? entry.left : entry.right;
+            rotateUp(child);
+        }
+        Entry<T> parent = entry.parent;
+        if (parent == null) {
+            root = null;
+            return;
+        }
+        if (parent.left == entry) {
+            parent.left = null;
+        } else {
+            parent.right = null;
+        }
+        entry.parent = null;
+        for (; parent != null; parent = parent.parent) {
+            parent.size--;
+        }
+    }
+
+    /**
+     * Rotates an entry above its parent, keeping the order of the sequence.
+     *
+     * @param entry An entry that has a parent.
+     */
+    private void rotateUp(Entry<T> entry) {
+        Entry<T> parent = entry.parent;
+        Entry<T> grandparent = parent.parent;
+        if (parent.left == entry) {
+            parent.left = entry.right;
+            if (entry.right != null) {
+                entry.right.parent = parent;
+            }
+            entry.right = parent;
+        } else {
+            parent.right = entry.left;
+            if (entry.left != null) {
+                entry.left.parent = parent;
+            }
+            entry.left = parent;
+        }
+        parent.parent = entry;
+        entry.parent = grandparent;
+        if (grandparent == null) {
+            root = entry;
+        } else if (grandparent.left == parent) {
+            grandparent.left = entry;
+        } else {
+            grandparent.right = entry;
+        }
+        // The entry now covers the subtree of its former parent, which lost the entry and one of its subtrees
+        entry.size = parent.size;
+        parent.size = sizeOf(parent.left) + sizeOf(parent.right) + 1;
+    }
+
+    /**
+     * Retrieves the size of a subtree.
+     *
+     * @param entry The root of the subtree, or null.
+     * @return The number of entries of the subtree, 0 if it is empty.
+     */
+    private static int sizeOf(Entry<?> entry) {
+        return entry == null ? 0 : entry.size;
+    }
+}
@@ -0,0 +1,304 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the results of word searches and prefix queries, keeping the recently used ones.
+ * <p>
+ * Each cache is a {@link ConcurrentHashMap} whose entries also sit in a ring of slots, evicted with the clock algorithm:
+ * a lookup marks its entry as referenced, and when the cache is full the hand of the clock goes round the ring, clearing
+ * the marks it passes, until it finds an entry not referenced since its last turn, which is dropped. This approximates
+ * dropping the least recently used entry without reordering anything on a lookup. Results larger than
+ * {@link #MAX_RESULT_SIZE} words are not cached, so that a few broad prefix queries cannot hold on to most of the vocabulary.
+ * <p>
+ * Invalidation is precise: when a word is added to or removed from a topic, only the search for that word and the
+ * prefix queries matching it are dropped. Every other cached result is still the one the indexes would give.
+ * <p>
+ * Lookups take no lock, so concurrent queries do not wait for each other; storing and dropping results is synchronized.
+ * A result computed while a word changed might miss that change, so it is only stored if no invalidation happened since
+ * its computation started, as told by {@link #getGeneration()}.
+ */
+public class QueryCache {
+
+    /** Default number of searches, and of prefix queries, kept in the cache. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Number of words above which a result is not cached. */
+    public static final int MAX_RESULT_SIZE = 1 << 16;
+
+    private final int capacity;
+    /** Topics containing each searched word, keyed by the case-folded word. */
+    private final Clock searches;
+    /** Words starting with each queried prefix. */
+    private final Clock prefixes;
+    /** Length of the longest cached prefix, so invalidations do not look up longer ones. */
+    private int longestPrefix;
+    /** Number of invalidations so far. */
+    private volatile long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long invalidations;
+    private long evictions;
+
+    /**
+     * Represents a cached result and its place in the ring.
+     */
+    private static final class Entry {
+        private final String key;
+        private final ArrayList<String> result;
+        private final int slot;
+        /** Whether the entry was looked up since the hand of the clock last passed it. */
+        private volatile boolean referenced;
+        /** Whether the entry was dropped by an invalidation, which frees its slot. */
+        private boolean removed;
+
+        /**
+         * Constructs an entry.
+         *
+         * @param key    The key of the result.
+         * @param result The cached result.
+         * @param slot   The slot of the entry in the ring.
+         */
+        private Entry(String key, ArrayList<String> result, int slot) {
+            this.key = key;
+            this.result = result;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Represents the results of one kind of query, with the ring of their slots.
+     */
+    private static final class Clock {
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+        private final Entry[] ring;
+        /** Number of slots used at least once since the last clear. */
+        private int filled;
+        private int hand;
+
+        /**
+         * Constructs an empty cache of the given capacity.
+         *
+         * @param capacity The number of slots of the ring.
+         */
+        private Clock(int capacity) {
+            this.ring = new Entry[capacity];
+        }
+    }
+
+    /**
+     * Constructs an empty cache holding up to the given number of searches, and as many prefix queries.
+     *
+     * @param capacity The maximum number of entries of each kind, 0 to disable caching.
+     */
+    public QueryCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Negative capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.searches = new Clock(capacity);
+        this.prefixes = new Clock(capacity);
+    }
+
+    /**
+     * Retrieves the cached topics containing a word.
+     *
+     * @param key The case-folded word.
+     * @return The topics containing the word, which must not be modified, or null if the search is not cached.
+     */
+    public ArrayList<String> getTopics(String key) {
+        return lookup(searches, key);
+    }
+
+    /**
+     * Caches the topics containing a word.
+     *
+     * @param key        The case-folded word.
+     * @param topics     The topics containing the word, which must not be modified afterwards.
+     * @param generation The generation read before the topics were computed.
+     */
+    public synchronized void putTopics(String key, ArrayList<String> topics, long generation) {
+        put(searches, key, topics, generation);
+    }
+
+    /**
+     * Retrieves the cached words starting with a prefix.
+     *
+     * @param prefix The prefix of the query.
+     * @return The words starting with the prefix, which must not be modified, or null if the query is not cached.
+     */
+    public ArrayList<String> getWords(String prefix) {
+        return lookup(prefixes, prefix);
+    }
+
+    /**
+     * Caches the words starting with a prefix.
+     *
+     * @param prefix     The prefix of the query.
+     * @param words      The words starting with the prefix, which must not be modified afterwards.
+     * @param generation The generation read before the words were computed.
+     */
+    public synchronized void putWords(String prefix, ArrayList<String> words, long generation) {
+        if (put(prefixes, prefix, words, generation)) {
+            longestPrefix = Math.max(longestPrefix, prefix.length());
+        }
+    }
+
+    /**
+     * Retrieves the number of invalidations so far, to be read before computing a result to cache.
+     *
+     * @return The current generation.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops the cached results that a word added to or removed from a topic can change:
+     * the search for the word, ignoring case, and the queries of every prefix of the word.
+     *
+     * @param word The word that was added or removed.
+     * @param key  The case-folded word.
+     */
+    public synchronized void invalidateWord(String word, String key) {
+        generation++;
+        if (searches.entries.isEmpty() && prefixes.entries.isEmpty()) {
+            return;
+        }
+        remove(searches, key);
+        int length = Math.min(word.length(), longestPrefix);
+        for (int i = 0; i <= length && !prefixes.entries.isEmpty(); i++) {
+            remove(prefixes, word.substring(0, i));
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void clear() {
+        generation++;
+        invalidations += searches.entries.size() + prefixes.entries.size();
+        for (Clock cache : new Clock[] {searches, prefixes}) {
+            cache.entries.clear();
+            Arrays.fill(cache.ring, null);
+            cache.filled = 0;
+            cache.hand = 0;
+        }
+        longestPrefix = 0;
+    }
+
+    /**
+     * Forgets the hit, miss, invalidation and eviction counts gathered so far.
+     */
+    public synchronized void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        invalidations = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Prints the number of cached results, lookups, hits, misses, invalidations and evictions.
+     */
+    public synchronized void printStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        System.out.printf("Query cache: %,d search(es) and %,d prefix quer(ies) cached, capacity %,d each.%n",
+                searches.entries.size(), prefixes.entries.size(), capacity);
+        System.out.printf("%,d lookup(s): %,d hit(s) (%.1f%%), %,d miss(es), %,d invalidation(s), %,d eviction(s).%n",
+                lookups, hitCount, lookups == 0 ? 0.0 : 100.0 * hitCount / lookups, missCount, invalidations, evictions);
+    }
+
+    /**
+     * Looks up a result without locking, marks it as referenced, and counts the lookup as a hit or a miss.
+     *
+     * @param cache The cache to look in.
+     * @param key   The key of the result.
+     * @return The cached result, or null if none.
+     */
+    private ArrayList<String> lookup(Clock cache, String key) {
+        Entry entry = cache.entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        // Only write the mark when it changes, so that readers of a popular entry do not contend on it
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.result;
+    }
+
+    /**
+     * Drops the result of a key, if cached, freeing its slot.
+     *
+     * @param cache The cache holding the result.
+     * @param key   The key of the result.
+     */
+    private void remove(Clock cache, String key) {
+        Entry entry = cache.entries.remove(key);
+        if (entry != null) {
+            entry.removed = true;
+            invalidations++;
+        }
+    }
+
+    /**
+     * Stores a result, unless it is too large or a word changed since it was computed,
+     * in the slot of the result it replaces, or else in a free slot or the slot of an entry evicted by the clock.
+     *
+     * @param cache      The cache receiving the result.
+     * @param key        The key of the result.
+     * @param result     The result to store.
+     * @param generation The generation read before the result was computed.
+     * @return true if the result was stored.
+     */
+    private boolean put(Clock cache, String key, ArrayList<String> result, long generation) {
+        if (capacity == 0 || generation != this.generation || result.size() > MAX_RESULT_SIZE) {
+            return false;
+        }
+        Entry previous = cache.entries.get(key);
+        int slot;
+        if (previous != null) {
+            slot = previous.slot;
+        } else if (cache.filled < capacity) {
+            slot = cache.filled++;
+        } else {
+            slot = evict(cache);
+        }
+        Entry entry = new Entry(key, result, slot);
+        cache.ring[slot] = entry;
+        cache.entries.put(key, entry);
+        return true;
+    }
+
+    /**
+     * Moves the hand of the clock to a slot that can be reused: a slot freed by an invalidation,
+     * or the slot of the first entry not referenced since the hand last passed it, which is dropped.
+     *
+     * @param cache The full cache.
+     * @return The slot to reuse.
+     */
+    private int evict(Clock cache) {
+        // Readers can mark entries again behind the hand, so after two turns the next entry is dropped anyway
+        for (int steps = 0; ; steps++) {
+            int slot = cache.hand;
+            cache.hand = (slot + 1) % capacity;
+            Entry entry = cache.ring[slot];
+            if (entry == null || entry.removed) {
+                return slot;
+            }
+            if (entry.referenced && steps < 2 * capacity) {
+                entry.referenced = false;
+            } else {
+                cache.entries.remove(entry.key, entry);
+                evictions++;
+                return slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package testing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Represents an ordered list of topics, each one with its list of words.
+ * Topics can be iterated over in order with a for-each loop, or in reverse order with {@link #descendingIterator()}.
+ * <p>
+ * {@link OurDLinkedList} links one node per topic and indexes the words; {@link ArrayTopicList} keeps the links in
+ * arrays and scans the words. {@link TopicStorage} selects one of them.
+ */
+public interface TopicList extends Iterable<String> {
+
+    /**
+     * Adds a new topic without words at the head of the list.
+     *
+     * @param newValue The topic to be added at the head of the list.
+     */
+    void addAtHead(String newValue);
+
+    /**
+     * Adds a new topic without words at the tail of the list.
+     *
+     * @param newValue The topic to be added at the tail of the list.
+     */
+    void addAtTail(String newValue);
+
+    /**
+     * Adds a new topic with the given words at the tail of the list.
+     *
+     * @param topic The topic to be added at the tail of the list.
+     * @param words The words of the new topic, in order.
+     */
+    void appendTopic(String topic, Collection<String> words);
+
+    /**
+     * Adds a new topic with the given words before the first occurrence of a reference topic.
+     *
+     * @param referenceValue The topic before which the new topic is to be added.
+     * @param newValue       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    boolean addBefore(String referenceValue, String newValue, Collection<String> words);
+
+    /**
+     * Adds a new topic with the given words after the first occurrence of a reference topic.
+     *
+     * @param referenceValue The topic after which the new topic is to be added.
+     * @param newValue       The topic to be added.
+     * @param words          The words of the new topic, in order.
+     * @return true if the topic was added, false if the reference topic was not found.
+     */
+    boolean addAfter(String referenceValue, String newValue, Collection<String> words);
+
+    /**
+     * Removes the head topic of the list.
+     *
+     * @return The topic removed, or null if the list is empty.
+     */
+    String removeHead();
+
+    /**
+     * Removes the tail topic of the list.
+     *
+     * @return The topic removed, or null if the list is empty.
+     */
+    String removeTail();
+
+    /**
+     * Removes the first occurrence of a topic from the list.
+     *
+     * @param topic The topic to be removed.
+     * @return The topic removed, or null if the topic is not found.
+     */
+    String removeValue(String topic);
+
+    /**
+     * Retrieves the words of the first occurrence of a topic.
+     *
+     * @param topic The topic whose words are to be retrieved.
+     * @return The words of the topic, or null if the topic is not found.
+     */
+    WordList getWordsForTopic(String topic);
+
+    /**
+     * Adds a word at the beginning of the words of the specified topic.
+     *
+     * @param topic The topic to which the word is to be added.
+     * @param word  The word to be added.
+     * @return true if the word was added, false if the topic was not found.
+     */
+    boolean addWordToTopic(String topic, String word);
+
+    /**
+     * Adds words at the end of the words of the specified topic, keeping their order.
+     *
+     * @param topic The topic to which the words are to be added.
+     * @param words The words to be added.
+     * @return true if the words were added, false if the topic was not found.
+     */
+    boolean addWordsToTopic(String topic, Collection<String> words);
+
+    /**
+     * Removes the first occurrence of a word from the specified topic.
+     *
+     * @param topic The topic from which the word is to be removed.
+     * @param word  The word to be removed.
+     * @return true if the word was removed, false if the topic or the word was not found.
+     */
+    boolean removeWordFromTopic(String topic, String word);
+
+    /**
+     * Replaces the first occurrence of a word of the specified topic, keeping its position.
+     *
+     * @param topic   The topic in which the word is to be replaced.
+     * @param oldWord The word to be replaced.
+     * @param newWord The word replacing it.
+     * @return true if the word was replaced, false if the topic or the old word was not found.
+     */
+    boolean replaceWord(String topic, String oldWord, String newWord);
+
+    /**
+     * Searches for a word, ignoring case, and returns the first topic containing it.
+     *
+     * @param word The word to search for.
+     * @return The topic closest to the head containing the word, or null if the word is not found.
+     */
+    String searchWord(String word);
+
+    /**
+     * Searches for a word, ignoring case, and returns every topic containing it, in the order of the list.
+     *
+     * @param word The word to search for.
+     * @return An ArrayList of the topics containing the word, empty if the word is not found.
+     */
+    ArrayList<String> searchWordTopics(String word);
+
+    /**
+     * Retrieves the words starting with the specified letter from all topics, sorted alphabetically.
+     *
+     * @param letter The starting letter of the words to retrieve.
+     * @return An ArrayList containing the matching words, sorted alphabetically.
+     */
+    ArrayList<String> getWordsStartingWithLetter(char letter);
+
+    /**
+     * Retrieves the words starting with the specified prefix from all topics, sorted alphabetically.
+     * A word occurring several times is listed as many times.
+     *
+     * @param prefix The prefix of the words to retrieve.
+     * @return An ArrayList containing the matching words, sorted alphabetically.
+     */
+    ArrayList<String> getWordsWithPrefix(String prefix);
+
+    /**
+     * Returns the number of topics in the list.
+     *
+     * @return The number of topics.
+     */
+    int getSize();
+
+    /**
+     * Retrieves the topics of the list, from head to tail.
+     *
+     * @return An array of the topics, in order.
+     */
+    String[] getTopics();
+
+    /**
+     * Displays the topics of the list in forward order.
+     * If the list is empty, prints a message indicating so.
+     */
+    void displayForward();
+
+    /**
+     * Displays the topics of the list in backward order.
+     * If the list is empty, prints a message indicating so.
+     */
+    void displayBackward();
+
+    /**
+     * Retrieves an iterator over the topics, from tail to head.
+     *
+     * @return An iterator over the topics, in reverse order.
+     */
+    Iterator<String> descendingIterator();
+
+    /**
+     * Performs the given action on each topic of the list, in forward order.
+     *
+     * @param action The action receiving each topic and its list of words.
+     */
+    void forEachTopic(BiConsumer<String, WordList> action);
+
+    /**
+     * Saves all topics and their words to a text file, printing the outcome.
+     *
+     * @param fileName The name of the file to which the content will be saved.
+     */
+    void saveToFile(String fileName);
+
+    /**
+     * Saves all topics and their words to a text file, without printing anything.
+     *
+     * @param fileName The name of the file to which the content will be saved.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file; the target is then left unchanged.
+     */
+    int writeToFile(String fileName) throws IOException;
+
+    /**
+     * Saves all topics and their words to a binary snapshot file.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file.
+     * @see VocabularySnapshot
+     */
+    int saveSnapshot(String fileName) throws IOException;
+
+    /**
+     * Loads the topics of a binary snapshot file and adds them, with their words, at the tail of the list.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while reading the file, or if the file is not a valid snapshot.
+     * @see VocabularySnapshot
+     */
+    int loadSnapshot(String fileName) throws IOException;
+}
@@ -0,0 +1,252 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Scans the words of a sequence of topics, sequentially or as fork/join tasks.
+ * <p>
+ * In parallel, the topics are split into segments holding about the same number of words, so that one large
+ * topic does not leave the other workers idle, and each segment is scanned by a task of the common pool.
+ * The results are merged so that they do not depend on how the topics were split:
+ * the first match is the one closest to the first topic, and collected words come out sorted.
+ */
+class TopicScan {
+
+    /** Number of words under which a segment is scanned directly rather than split further. */
+    private static final int SEGMENT_WORDS = 1 << 14;
+
+    private final WordList[] lists;
+    /** Number of words of the topics before each topic, with the total at the end. */
+    private final long[] wordsBefore;
+
+    /**
+     * Constructs a scan over the word lists of the given topics.
+     *
+     * @param lists The word lists of the topics, in order.
+     */
+    TopicScan(WordList[] lists) {
+        this.lists = lists;
+        this.wordsBefore = new long[lists.length + 1];
+        for (int i = 0; i < lists.length; i++) {
+            wordsBefore[i + 1] = wordsBefore[i] + lists[i].getSize();
+        }
+    }
+
+    /**
+     * Retrieves the number of words of the scanned topics.
+     *
+     * @return The total number of words.
+     */
+    long getWordCount() {
+        return wordsBefore[lists.length];
+    }
+
+    /**
+     * Finds the first topic having a word that matches the filter.
+     *
+     * @param filter   The condition a word must meet.
+     * @param parallel Whether to scan the topics as fork/join tasks.
+     * @return The index of the first matching topic, or -1 if no word matches.
+     */
+    int firstMatch(Predicate<String> filter, boolean parallel) {
+        if (!parallel) {
+            return firstMatch(filter, 0, lists.length);
+        }
+        return ForkJoinPool.commonPool().invoke(new FirstMatchTask(filter, 0, lists.length));
+    }
+
+    /**
+     * Collects every word that matches the filter, in alphabetical order.
+     *
+     * @param filter   The condition a word must meet.
+     * @param parallel Whether to scan the topics as fork/join tasks.
+     * @return The matching words, sorted alphabetically, with one entry per occurrence.
+     */
+    ArrayList<String> collectSorted(Predicate<String> filter, boolean parallel) {
+        if (!parallel) {
+            return collectSorted(filter, 0, lists.length);
+        }
+        return ForkJoinPool.commonPool().invoke(new CollectTask(filter, 0, lists.length));
+    }
+
+    /**
+     * Finds the first topic of a segment having a word that matches the filter.
+     *
+     * @param filter The condition a word must meet.
+     * @param from   The index of the first topic of the segment.
+     * @param to     The index after the last topic of the segment.
+     * @return The index of the first matching topic, or -1 if no word of the segment matches.
+     */
+    private int firstMatch(Predicate<String> filter, int from, int to) {
+        for (int i = from; i < to; i++) {
+            for (String word : lists[i]) {
+                if (filter.test(word)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the words of a segment that match the filter, in alphabetical order.
+     *
+     * @param filter The condition a word must meet.
+     * @param from   The index of the first topic of the segment.
+     * @param to     The index after the last topic of the segment.
+     * @return The matching words of the segment, sorted alphabetically.
+     */
+    private ArrayList<String> collectSorted(Predicate<String> filter, int from, int to) {
+        ArrayList<String> matches = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            for (String word : lists[i]) {
+                if (filter.test(word)) {
+                    matches.add(word);
+                }
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Checks whether a segment is small enough to be scanned directly.
+     *
+     * @param from The index of the first topic of the segment.
+     * @param to   The index after the last topic of the segment.
+     * @return true if the segment holds a single topic or few words.
+     */
+    private boolean isSmall(int from, int to) {
+        return to - from <= 1 || wordsBefore[to] - wordsBefore[from] <= SEGMENT_WORDS;
+    }
+
+    /**
+     * Finds where to split a segment so that both halves hold about the same number of words.
+     *
+     * @param from The index of the first topic of the segment, which holds at least two topics.
+     * @param to   The index after the last topic of the segment.
+     * @return The index of the first topic of the second half, strictly between from and to.
+     */
+    private int split(int from, int to) {
+        long half = (wordsBefore[from] + wordsBefore[to]) / 2;
+        int low = from + 1;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (wordsBefore[middle] < half) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first matching topic of a segment, scanning both halves in parallel.
+     */
+    private class FirstMatchTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+        private final Predicate<String> filter;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task scanning a segment.
+         *
+         * @param filter The condition a word must meet.
+         * @param from   The index of the first topic of the segment.
+         * @param to     The index after the last topic of the segment.
+         */
+        public FirstMatchTask(Predicate<String> filter, int from, int to) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (isSmall(from, to)) {
+                return firstMatch(filter, from, to);
+            }
+            int middle = split(from, to);
+            FirstMatchTask second = new FirstMatchTask(filter, middle, to);
+            second.fork();
+            int first = new FirstMatchTask(filter, from, middle).compute();
+            if (first >= 0) {
+                // A match in the first half comes before any match in the second one
+                second.cancel(false);
+                return first;
+            }
+            return second.join();
+        }
+    }
+
+    /**
+     * Collects the matching words of a segment, scanning both halves in parallel and merging their sorted results.
+     */
+    private class CollectTask extends RecursiveTask<ArrayList<String>> {
+        private static final long serialVersionUID = 1L;
+        private final Predicate<String> filter;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task scanning a segment.
+         *
+         * @param filter The condition a word must meet.
+         * @param from   The index of the first topic of the segment.
+         * @param to     The index after the last topic of the segment.
+         */
+        public CollectTask(Predicate<String> filter, int from, int to) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ArrayList<String> compute() {
+            if (isSmall(from, to)) {
+                return collectSorted(filter, from, to);
+            }
+            int middle = split(from, to);
+            CollectTask second = new CollectTask(filter, middle, to);
+            second.fork();
+            ArrayList<String> first = new CollectTask(filter, from, middle).compute();
+            return merge(first, second.join());
+        }
+
+        /**
+         * Merges two sorted lists of words.
+         *
+         * @param first  The first sorted list.
+         * @param second The second sorted list.
+         * @return A sorted list holding the words of both lists.
+         */
+        private ArrayList<String> merge(ArrayList<String> first, ArrayList<String> second) {
+            if (first.isEmpty()) {
+                return second;
+            }
+            if (second.isEmpty()) {
+                return first;
+            }
+            ArrayList<String> merged = new ArrayList<>(first.size() + second.size());
+            int i = 0;
+            int j = 0;
+            while (i < first.size() && j < second.size()) {
+                if (first.get(i).compareTo(second.get(j)) <= 0) {
+                    merged.add(first.get(i++));
+                } else {
+                    merged.add(second.get(j++));
+                }
+            }
+            merged.addAll(first.subList(i, first.size()));
+            merged.addAll(second.subList(j, second.size()));
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package testing;
+
+/**
+ * Represents the ways the topics of a vocabulary can be stored.
+ */
+public enum TopicStorage {
+
+    /** One node per topic, with word and prefix indexes, a query cache and journaling, in an {@link OurDLinkedList}. */
+    LINKED,
+    /**
+     * Links and topics in parallel arrays, in an {@link ArrayTopicList}.
+     * Walking the topics is faster; words are not indexed, so word searches and prefix queries scan every word.
+     */
+    ARRAY;
+
+    /**
+     * Creates an empty topic list using this storage.
+     *
+     * @param words How the words of each topic are stored.
+     * @return A new, empty topic list.
+     */
+    TopicList newList(WordStorage words) {
+        switch (this) {
+            case ARRAY:
+                return new ArrayTopicList(words);
+            default:
+                return new OurDLinkedList(words);
+        }
+    }
+}
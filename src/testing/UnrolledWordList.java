@@ -0,0 +1,484 @@
+package testing;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import testing.Instrumentation.Operation;
+
+/**
+ * Represents an unrolled linked list of words.
+ * Instead of one node per word, each node (chunk) holds up to {@link #CHUNK_CAPACITY} words in an array,
+ * which saves the per-node overhead and keeps neighbouring words next to each other in memory.
+ * When instrumented, operations report the number of chunks they went through.
+ * Values are stored as their {@link WordPool} instances, so they are looked for by reference.
+ */
+public class UnrolledWordList implements WordList {
+
+    /** Maximum number of words held by a chunk. */
+    static final int CHUNK_CAPACITY = 64;
+
+    private Chunk head;
+    private Chunk tail;
+    private int size;
+    /** Number of structural changes (words added or removed), used by iterators to detect concurrent modifications. */
+    private int modCount;
+    /** Notified of every word added to or removed from the list, may be null. */
+    private WordListener listener;
+
+    /**
+     * Constructs an empty unrolled list.
+     */
+    public UnrolledWordList() {
+        head = null;
+        tail = null;
+        size = 0;
+    }
+
+    /**
+     * Constructs an empty unrolled list that reports its word changes to the given listener.
+     *
+     * @param listener The listener to notify whenever a word is added or removed.
+     */
+    UnrolledWordList(WordListener listener) {
+        this();
+        this.listener = listener;
+    }
+
+    /**
+     * Adds the specified value at the beginning of the list.
+     *
+     * @param newValue The value to be added at the beginning of the list.
+     */
+    @Override
+    public void addAtHead(String newValue) {
+        newValue = WordPool.intern(newValue);
+        long start = Instrumentation.start();
+        if (head == null || head.count == CHUNK_CAPACITY) {
+            linkAfter(null, new Chunk());
+        }
+        insertAt(head, 0, newValue);
+        Instrumentation.record(Operation.WORD_INSERT, start, 0);
+    }
+
+    /**
+     * Adds the specified value at the end of the list.
+     *
+     * @param newValue The value to be added at the end of the list.
+     */
+    @Override
+    public void addAtEnd(String newValue) {
+        newValue = WordPool.intern(newValue);
+        long start = Instrumentation.start();
+        if (tail == null || tail.count == CHUNK_CAPACITY) {
+            linkAfter(tail, new Chunk());
+        }
+        tail.words[tail.count++] = newValue;
+        modCount++;
+        size++;
+        added(newValue);
+        Instrumentation.record(Operation.WORD_INSERT, start, 0);
+    }
+
+    /**
+     * Adds all the given values at the end of the list, keeping their order.
+     * The values fill the last chunk, then new chunks, in a single pass.
+     *
+     * @param newValues The values to be added at the end of the list.
+     */
+    @Override
+    public void addAll(Collection<String> newValues) {
+        for (String newValue : newValues) {
+            if (tail == null || tail.count == CHUNK_CAPACITY) {
+                linkAfter(tail, new Chunk());
+            }
+            tail.words[tail.count++] = WordPool.intern(newValue);
+        }
+        modCount++;
+        size += newValues.size();
+        if (listener != null) {
+            for (String newValue : newValues) {
+                listener.wordAdded(newValue);
+            }
+        }
+    }
+
+    /**
+     * Adds the specified value after the first occurrence of another value.
+     * If that value does not exist in the list, the new value is not added.
+     *
+     * @param value    The value after which the new value should be added.
+     * @param newValue The value to be added.
+     */
+    @Override
+    public void addAfter(String value, String newValue) {
+        value = WordPool.find(value);
+        if (value == null) {
+            return;
+        }
+        newValue = WordPool.intern(newValue);
+        long start = Instrumentation.start();
+        int traversed = 0;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next, traversed++) {
+            int index = chunk.indexOf(value);
+            if (index >= 0) {
+                insertAt(chunk, index + 1, newValue);
+                break;
+            }
+        }
+        Instrumentation.record(Operation.WORD_INSERT, start, traversed);
+    }
+
+    /**
+     * Removes and returns the value at the beginning of the list.
+     *
+     * @return The value removed from the beginning of the list, or null if the list is empty.
+     */
+    @Override
+    public String removeHead() {
+        long start = Instrumentation.start();
+        String value = head == null ? null : removeAt(head, 0);
+        Instrumentation.record(Operation.WORD_REMOVE, start, 0);
+        return value;
+    }
+
+    /**
+     * Removes and returns the value at the end of the list.
+     *
+     * @return The value removed from the end of the list, or null if the list is empty.
+     */
+    @Override
+    public String removeEnd() {
+        long start = Instrumentation.start();
+        String value = tail == null ? null : removeAt(tail, tail.count - 1);
+        Instrumentation.record(Operation.WORD_REMOVE, start, 0);
+        return value;
+    }
+
+    /**
+     * Removes the first occurrence of the specified value from the list.
+     *
+     * @param valueToRemove The value to be removed from the list.
+     * @return The value removed from the list, or null if the specified value is not found.
+     */
+    @Override
+    public String removeValue(String valueToRemove) {
+        valueToRemove = WordPool.find(valueToRemove);
+        if (valueToRemove == null) {
+            return null;
+        }
+        long start = Instrumentation.start();
+        int traversed = 0;
+        String value = null;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next, traversed++) {
+            int index = chunk.indexOf(valueToRemove);
+            if (index >= 0) {
+                value = removeAt(chunk, index);
+                break;
+            }
+        }
+        Instrumentation.record(Operation.WORD_REMOVE, start, traversed);
+        return value;
+    }
+
+    /**
+     * Removes and returns the value following the first occurrence of the specified value.
+     *
+     * @param data The value after which the value to be removed is located.
+     * @return The value removed from the list, or null if the specified value is not found or is the last one.
+     */
+    @Override
+    public String removeAfter(String data) {
+        data = WordPool.find(data);
+        if (data == null) {
+            return null;
+        }
+        long start = Instrumentation.start();
+        int traversed = 0;
+        String value = null;
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next, traversed++) {
+            int index = chunk.indexOf(data);
+            if (index >= 0) {
+                if (index + 1 < chunk.count) {
+                    value = removeAt(chunk, index + 1);
+                } else if (chunk.next != null) {
+                    value = removeAt(chunk.next, 0);
+                }
+                break;
+            }
+        }
+        Instrumentation.record(Operation.WORD_REMOVE, start, traversed);
+        return value;
+    }
+
+    /**
+     * Replaces the first value equal to the old value with the new value, keeping its position.
+     *
+     * @param oldValue The value to be replaced.
+     * @param newValue The value replacing it.
+     * @return true if the old value was found and replaced.
+     */
+    @Override
+    public boolean replace(String oldValue, String newValue) {
+        oldValue = WordPool.find(oldValue);
+        if (oldValue == null) {
+            return false;
+        }
+        long start = Instrumentation.start();
+        int traversed = 0;
+        try {
+            for (Chunk chunk = head; chunk != null; chunk = chunk.next, traversed++) {
+                int index = chunk.indexOf(oldValue);
+                if (index >= 0) {
+                    newValue = WordPool.intern(newValue);
+                    chunk.words[index] = newValue;
+                    removed(oldValue);
+                    added(newValue);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            Instrumentation.record(Operation.WORD_REPLACE, start, traversed);
+        }
+    }
+
+    /**
+     * Checks whether the list holds a value equal to the given one.
+     *
+     * @param value The value to look for.
+     * @return true if the value is in the list.
+     */
+    @Override
+    public boolean contains(String value) {
+        value = WordPool.find(value);
+        if (value == null) {
+            return false;
+        }
+        for (Chunk chunk = head; chunk != null; chunk = chunk.next) {
+            if (chunk.indexOf(value) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return The number of values in the list.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Displays the content of the list.
+     * If the list is empty, prints a message indicating so.
+     */
+    @Override
+    public void display() {
+        if (size == 0) {
+            System.out.println("Your list is empty.");
+        } else {
+            System.out.println("Your list has " + size + " element(s): ");
+            for (String word : this) {
+                System.out.println(word);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the first value of the list.
+     *
+     * @return The first value of the list, or null if the list is empty.
+     */
+    @Override
+    public String getFirstWord() {
+        return head == null ? null : head.words[0];
+    }
+
+    /**
+     * Retrieves an iterator over the values of the list, in order.
+     * The iterator is fail-fast: it throws a {@link ConcurrentModificationException} if values are
+     * added to or removed from the list during the iteration, other than through {@link #replace(String, String)}.
+     *
+     * @return An iterator over the values of the list.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private Chunk chunk = head;
+            private int index = 0;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return chunk != null;
+            }
+
+            @Override
+            public String next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (chunk == null) {
+                    throw new NoSuchElementException();
+                }
+                String value = chunk.words[index++];
+                if (index == chunk.count) {
+                    chunk = chunk.next;
+                    index = 0;
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Inserts a value at the given index of a chunk, splitting the chunk in two if it is full.
+     *
+     * @param chunk    The chunk receiving the value.
+     * @param index    The index of the value within the chunk, between 0 and the number of words of the chunk.
+     * @param newValue The value to be inserted.
+     */
+    private void insertAt(Chunk chunk, int index, String newValue) {
+        if (chunk.count == CHUNK_CAPACITY) {
+            // Move the upper half to a new chunk following this one
+            Chunk upper = new Chunk();
+            int half = CHUNK_CAPACITY / 2;
+            System.arraycopy(chunk.words, half, upper.words, 0, CHUNK_CAPACITY - half);
+            Arrays.fill(chunk.words, half, CHUNK_CAPACITY, null);
+            upper.count = CHUNK_CAPACITY - half;
+            chunk.count = half;
+            linkAfter(chunk, upper);
+            if (index > half) {
+                chunk = upper;
+                index -= half;
+            }
+        }
+        System.arraycopy(chunk.words, index, chunk.words, index + 1, chunk.count - index);
+        chunk.words[index] = newValue;
+        chunk.count++;
+        modCount++;
+        size++;
+        added(newValue);
+    }
+
+    /**
+     * Removes the value at the given index of a chunk.
+     * An emptied chunk is unlinked, and a chunk less than a quarter full is merged with the next one when they fit together.
+     *
+     * @param chunk The chunk holding the value.
+     * @param index The index of the value within the chunk.
+     * @return The value removed.
+     */
+    private String removeAt(Chunk chunk, int index) {
+        String value = chunk.words[index];
+        System.arraycopy(chunk.words, index + 1, chunk.words, index, chunk.count - index - 1);
+        chunk.words[--chunk.count] = null;
+        modCount++;
+        size--;
+        if (chunk.count == 0) {
+            unlink(chunk);
+        } else if (chunk.count < CHUNK_CAPACITY / 4 && chunk.next != null
+                && chunk.count + chunk.next.count <= CHUNK_CAPACITY) {
+            Chunk next = chunk.next;
+            System.arraycopy(next.words, 0, chunk.words, chunk.count, next.count);
+            chunk.count += next.count;
+            unlink(next);
+        }
+        removed(value);
+        return value;
+    }
+
+    /**
+     * Links a chunk after another one.
+     *
+     * @param previous The chunk after which the new chunk goes, or null to link it at the head.
+     * @param chunk    The new chunk.
+     */
+    private void linkAfter(Chunk previous, Chunk chunk) {
+        chunk.previous = previous;
+        chunk.next = previous == null ? head : previous.next;
+        if (chunk.next == null) {
+            tail = chunk;
+        } else {
+            chunk.next.previous = chunk;
+        }
+        if (previous == null) {
+            head = chunk;
+        } else {
+            previous.next = chunk;
+        }
+    }
+
+    /**
+     * Unlinks a chunk from the list.
+     *
+     * @param chunk The chunk to be unlinked.
+     */
+    private void unlink(Chunk chunk) {
+        if (chunk.previous == null) {
+            head = chunk.next;
+        } else {
+            chunk.previous.next = chunk.next;
+        }
+        if (chunk.next == null) {
+            tail = chunk.previous;
+        } else {
+            chunk.next.previous = chunk.previous;
+        }
+    }
+
+    /**
+     * Reports an added word to the listener, if any.
+     *
+     * @param word The word that was added.
+     */
+    private void added(String word) {
+        if (listener != null) {
+            listener.wordAdded(word);
+        }
+    }
+
+    /**
+     * Reports a removed word to the listener, if any.
+     *
+     * @param word The word that was removed.
+     */
+    private void removed(String word) {
+        if (listener != null) {
+            listener.wordRemoved(word);
+        }
+    }
+
+    /**
+     * Represents a chunk of consecutive words in the unrolled list.
+     */
+    private static class Chunk {
+        private final String[] words = new String[CHUNK_CAPACITY];
+        private int count;
+        private Chunk previous;
+        private Chunk next;
+
+        /**
+         * Finds a value in this chunk.
+         * Values are compared by reference, the same way as in {@link OurLinkedList}.
+         *
+         * @param value The {@link WordPool} instance of the value to look for.
+         * @return The index of the first occurrence of the value, or -1 if it is not in this chunk.
+         */
+        public int indexOf(String value) {
+            for (int i = 0; i < count; i++) {
+                if (words[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
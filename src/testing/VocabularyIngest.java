@@ -0,0 +1,415 @@
+package testing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Loads many vocabulary files in the "#topic" format into one topic list, merging the topics they share.
+ * <p>
+ * The files are read and parsed concurrently on a pool of threads, more threads than cores since reading a file mostly
+ * waits for the disk. The parsed files are then merged into the list on the calling thread, in the order the files were
+ * given, while the following files are still being read. At most as many files as threads are read ahead of the merge,
+ * the next one being started as each file is merged, so memory stays bounded however many files there are.
+ * A topic that is not in the list yet is appended at its tail; the words of a topic already in the list, or met in an
+ * earlier file, are added to its first node. A word is only added to a topic that does not hold it yet, so each topic
+ * ends up with a single node and no repeated words.
+ */
+public class VocabularyIngest {
+
+    /** Default number of files read at the same time. */
+    public static final int DEFAULT_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final int threads;
+
+    /**
+     * Constructs an ingest reading up to the given number of files at the same time.
+     *
+     * @param threads The number of files read at the same time.
+     */
+    public VocabularyIngest(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Constructs an ingest reading up to {@link #DEFAULT_THREADS} files at the same time.
+     */
+    public VocabularyIngest() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Lists the files to ingest: the regular files of a directory, sorted by name, or the given file itself.
+     *
+     * @param fileOrDirectory The name of a file or of a directory.
+     * @return The names of the files to ingest.
+     * @throws IOException if an I/O error occurs while listing the directory.
+     */
+    public static List<String> listFiles(String fileOrDirectory) throws IOException {
+        Path path = Path.of(fileOrDirectory);
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(fileOrDirectory);
+        }
+        try (Stream<Path> entries = Files.list(path)) {
+            return entries.filter(Files::isRegularFile).map(Path::toString).sorted().toList();
+        }
+    }
+
+    /**
+     * Reads the files concurrently and merges their topics into the topic list.
+     * If a file cannot be read, the files before it are merged, the others are not, and the error is thrown.
+     *
+     * @param fileNames The names of the files, in the order their topics are merged.
+     * @param dll       The topic list receiving the topics.
+     * @return The number of topics and words read and added, for each file and in total.
+     * @throws IOException if an I/O error occurs while reading one of the files.
+     */
+    public Result ingest(List<String> fileNames, TopicList dll) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, fileNames.size())), task -> {
+            Thread thread = new Thread(task, "vocabulary-ingest-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Result result = new Result();
+        try {
+            // At most as many files as threads are read ahead of the merge, so a slow file or a slow merge
+            // cannot leave the whole directory parsed in memory
+            ArrayList<Future<ParsedFile>> parsed = new ArrayList<>(Collections.nCopies(fileNames.size(), null));
+            for (int i = 0; i < Math.min(threads, fileNames.size()); i++) {
+                parsed.set(i, read(readers, fileNames.get(i)));
+            }
+            Merger merger = new Merger(dll, result);
+            for (int i = 0; i < parsed.size(); i++) {
+                ParsedFile file = await(parsed.get(i), fileNames.get(i));
+                // Let the file be collected once merged
+                parsed.set(i, null);
+                merger.merge(file);
+                if (i + threads < fileNames.size()) {
+                    parsed.set(i + threads, read(readers, fileNames.get(i + threads)));
+                }
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Starts reading a file on the pool of readers.
+     *
+     * @param readers  The pool of threads reading the files.
+     * @param fileName The name of the file.
+     * @return The pending read of the file.
+     */
+    private static Future<ParsedFile> read(ExecutorService readers, String fileName) {
+        return readers.submit(() -> ParsedFile.read(fileName));
+    }
+
+    /**
+     * Waits for a file to be read.
+     *
+     * @param file     The pending read of the file.
+     * @param fileName The name of the file.
+     * @return The parsed file.
+     * @throws IOException if the file could not be read, or if interrupted while waiting.
+     */
+    private static ParsedFile await(Future<ParsedFile> file, String fileName) throws IOException {
+        try {
+            return file.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + fileName, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error reading " + fileName, e.getCause());
+        }
+    }
+
+    /**
+     * Represents the topics of one file, with their words, in file order.
+     */
+    private static class ParsedFile {
+        private final FileReport report;
+        private final ArrayList<String> topics = new ArrayList<>();
+        private final ArrayList<ArrayList<String>> words = new ArrayList<>();
+
+        /**
+         * Constructs an empty parsed file.
+         *
+         * @param fileName The name of the file.
+         */
+        private ParsedFile(String fileName) {
+            this.report = new FileReport(fileName);
+        }
+
+        /**
+         * Reads and parses a file, timing it.
+         *
+         * @param fileName The name of the file.
+         * @return The parsed file.
+         * @throws IOException if an I/O error occurs while reading the file.
+         */
+        static ParsedFile read(String fileName) throws IOException {
+            ParsedFile file = new ParsedFile(fileName);
+            long start = System.nanoTime();
+            VocabularyLoader.read(fileName, (topic, topicWords) -> {
+                file.topics.add(topic);
+                file.words.add(topicWords);
+                file.report.wordsRead += topicWords.size();
+            });
+            file.report.nanos = System.nanoTime() - start;
+            file.report.bytes = Files.size(Path.of(fileName));
+            file.report.topicsRead = file.topics.size();
+            return file;
+        }
+    }
+
+    /**
+     * Merges parsed files into a topic list, remembering the words of every topic it met.
+     */
+    private static class Merger {
+        private final TopicList dll;
+        private final Result result;
+        /** Words of each topic met so far, whether read from a file or already in the list. */
+        private final HashMap<String, HashSet<String>> members = new HashMap<>();
+
+        /**
+         * Constructs a merger into the given list.
+         *
+         * @param dll    The topic list receiving the topics.
+         * @param result The counts to update.
+         */
+        Merger(TopicList dll, Result result) {
+            this.dll = dll;
+            this.result = result;
+        }
+
+        /**
+         * Merges the topics of a file into the list, in file order.
+         *
+         * @param file The parsed file.
+         */
+        void merge(ParsedFile file) {
+            FileReport report = file.report;
+            for (int i = 0; i < file.topics.size(); i++) {
+                String topic = file.topics.get(i);
+                HashSet<String> known = members.get(topic);
+                boolean existing = known != null;
+                if (known == null) {
+                    known = new HashSet<>();
+                    WordList current = dll.getWordsForTopic(topic);
+                    if (current != null) {
+                        existing = true;
+                        for (String word : current) {
+                            known.add(word);
+                        }
+                    }
+                    members.put(topic, known);
+                }
+                ArrayList<String> added = new ArrayList<>();
+                for (String word : file.words.get(i)) {
+                    if (known.add(word)) {
+                        added.add(word);
+                    }
+                }
+                if (!existing) {
+                    dll.appendTopic(topic, added);
+                    report.topicsAdded++;
+                } else if (!added.isEmpty()) {
+                    dll.addWordsToTopic(topic, added);
+                }
+                report.wordsAdded += added.size();
+                // Drop the parsed words once merged
+                file.words.set(i, null);
+            }
+            result.files.add(report);
+        }
+    }
+
+    /**
+     * Represents what was read from one file and added to the list.
+     */
+    public static class FileReport {
+        private final String fileName;
+        private long bytes;
+        private long nanos;
+        private int topicsRead;
+        private int topicsAdded;
+        private long wordsRead;
+        private long wordsAdded;
+
+        /**
+         * Constructs an empty report.
+         *
+         * @param fileName The name of the file.
+         */
+        FileReport(String fileName) {
+            this.fileName = fileName;
+        }
+
+        /**
+         * Retrieves the name of the file.
+         *
+         * @return The name of the file.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Retrieves the size of the file.
+         *
+         * @return The number of bytes of the file.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Retrieves the time taken to read and parse the file.
+         *
+         * @return The time in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Retrieves the number of topics of the file.
+         *
+         * @return The number of topics read.
+         */
+        public int getTopicsRead() {
+            return topicsRead;
+        }
+
+        /**
+         * Retrieves the number of topics of the file that were not in the list yet.
+         *
+         * @return The number of topics appended.
+         */
+        public int getTopicsAdded() {
+            return topicsAdded;
+        }
+
+        /**
+         * Retrieves the number of words of the file.
+         *
+         * @return The number of words read.
+         */
+        public long getWordsRead() {
+            return wordsRead;
+        }
+
+        /**
+         * Retrieves the number of words of the file that their topic did not hold yet.
+         *
+         * @return The number of words added.
+         */
+        public long getWordsAdded() {
+            return wordsAdded;
+        }
+
+        /**
+         * Retrieves the reading throughput of the file.
+         *
+         * @return The number of megabytes read per second.
+         */
+        public double getMegabytesPerSecond() {
+            return nanos == 0 ? 0.0 : bytes / 1e6 / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * Represents the outcome of an ingest: a report for each file, in merge order, and the total time.
+     */
+    public static class Result {
+        private final ArrayList<FileReport> files = new ArrayList<>();
+        private long nanos;
+
+        /**
+         * Retrieves the reports of the files.
+         *
+         * @return The report of each file, in merge order.
+         */
+        public List<FileReport> getFiles() {
+            return Collections.unmodifiableList(files);
+        }
+
+        /**
+         * Retrieves the number of topics appended to the list.
+         *
+         * @return The number of new topics.
+         */
+        public int getTopicsAdded() {
+            int topics = 0;
+            for (FileReport file : files) {
+                topics += file.topicsAdded;
+            }
+            return topics;
+        }
+
+        /**
+         * Retrieves the number of words added to the list.
+         *
+         * @return The number of words added.
+         */
+        public long getWordsAdded() {
+            long words = 0;
+            for (FileReport file : files) {
+                words += file.wordsAdded;
+            }
+            return words;
+        }
+
+        /**
+         * Retrieves the time taken by the whole ingest, from the first read to the last merge.
+         *
+         * @return The time in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Prints the topics, words, size, time and throughput of each file, followed by the totals.
+         */
+        public void print() {
+            long bytes = 0;
+            long wordsRead = 0;
+            int topicsRead = 0;
+            System.out.printf("%-40s %12s %8s %8s %10s %10s %10s %9s%n",
+                    "File", "Bytes", "Topics", "New", "Words", "Added", "Read ms", "MB/s");
+            for (FileReport file : files) {
+                System.out.printf("%-40s %,12d %,8d %,8d %,10d %,10d %10.1f %9.1f%n", file.fileName, file.bytes,
+                        file.topicsRead, file.topicsAdded, file.wordsRead, file.wordsAdded, file.nanos / 1e6,
+                        file.getMegabytesPerSecond());
+                bytes += file.bytes;
+                wordsRead += file.wordsRead;
+                topicsRead += file.topicsRead;
+            }
+            long wordsAdded = getWordsAdded();
+            System.out.printf("%,d file(s), %,d byte(s) in %.1f ms (%.1f MB/s): %,d topic(s) read, %,d new; "
+                            + "%,d word(s) read, %,d added, %,d duplicate(s) skipped.%n",
+                    files.size(), bytes, nanos / 1e6, nanos == 0 ? 0.0 : bytes / 1e6 / (nanos / 1e9),
+                    topicsRead, getTopicsAdded(), wordsRead, wordsAdded, wordsRead - wordsAdded);
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package testing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persists a vocabulary incrementally, as a snapshot followed by a write-ahead journal of the changes made since.
+ * <p>
+ * The store is a directory holding a {@link VocabularySnapshot} and journal segments. Once a journal is attached to a
+ * doubly linked list, each change made through the list (topics added or removed, words added, removed or replaced)
+ * is appended to the current segment as one compact record, so saving costs as much as the change itself.
+ * Changes made directly to the word list of a topic, bypassing the doubly linked list, are not recorded.
+ * <p>
+ * Each record holds its length, a sequence number, the operation and its arguments, and a CRC-32 checksum.
+ * Records are buffered until {@link #flush()}, which also forces them to the disk, so a crash loses at most the changes
+ * made since the last flush. A record cut short by a crash is detected by its length or checksum and ignored.
+ * Once a write fails, the journal is broken for good: it records nothing more and every flush fails, since the changes
+ * it missed would otherwise be lost silently, until {@link #rebuild(OurDLinkedList)} stores the whole list again.
+ * <p>
+ * When the journal grows past {@link #COMPACTION_BYTES}, it is compacted in the background: the current segment is closed
+ * and a new one started, then another thread replays the closed segments on top of the snapshot, writes a new snapshot
+ * recording the last sequence number it includes, and deletes the closed segments only once that snapshot and its directory
+ * entry are forced to the disk. The live vocabulary is never read by
+ * that thread. When the store is opened again, the snapshot is loaded and only the records that follow it are replayed.
+ */
+public class VocabularyJournal implements Closeable {
+
+    /** The first four bytes of every journal segment, "VOCJ" in ASCII. */
+    public static final int MAGIC = 0x564F434A;
+    /** The version of the segment format written by this class. */
+    public static final int VERSION = 1;
+    /** Size of the journal segments, in bytes, above which a compaction is started. */
+    public static final long COMPACTION_BYTES = 64L << 20;
+
+    /** Name of the snapshot file in the store directory. */
+    static final String SNAPSHOT_FILE = "vocabulary.snapshot";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Operations, as stored in the records
+    static final byte ADD_AT_HEAD = 1;
+    static final byte ADD_AT_TAIL = 2;
+    static final byte APPEND_TOPIC = 3;
+    static final byte ADD_BEFORE = 4;
+    static final byte ADD_AFTER = 5;
+    static final byte REMOVE_HEAD = 6;
+    static final byte REMOVE_TAIL = 7;
+    static final byte REMOVE_TOPIC = 8;
+    static final byte ADD_WORD = 9;
+    static final byte ADD_WORDS = 10;
+    static final byte REMOVE_WORD = 11;
+    static final byte REPLACE_WORD = 12;
+    static final byte INSERT_AT = 13;
+    static final byte REMOVE_AT = 14;
+
+    private final Path directory;
+    private final WordStorage storage;
+    /** Sequence number of the last record written. */
+    private long sequence;
+    /** Closed segments waiting to be compacted, oldest first. Shared with the compaction thread. */
+    private final ArrayList<Path> closedSegments;
+    private Path segment;
+    /** Sequence number of the first record of the current segment. */
+    private long segmentStart;
+    private FileChannel channel;
+    private DataOutputStream out;
+    /** Size of the open and closed segments, in bytes. */
+    private long journalBytes;
+    /** The first error met while writing the journal, reported by every flush until the journal is rebuilt. */
+    private IOException failure;
+    private final ExecutorService compactor;
+    private Future<?> compaction;
+
+    /**
+     * Constructs a journal writing to the given store directory.
+     *
+     * @param directory The store directory.
+     * @param storage   How the words of each topic are stored when replaying the journal for a compaction.
+     * @param sequence  The sequence number of the last record already stored.
+     */
+    private VocabularyJournal(Path directory, WordStorage storage, long sequence) {
+        this.directory = directory;
+        this.storage = storage;
+        this.sequence = sequence;
+        this.closedSegments = new ArrayList<>();
+        this.compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "vocabulary-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a store directory, creating it if needed: loads its snapshot and replays its journal into an empty doubly linked list,
+     * then attaches a journal to the list so that its following changes are recorded.
+     *
+     * @param directoryName The name of the store directory.
+     * @param dll           The doubly linked list receiving the stored vocabulary, which must be empty.
+     * @param storage       How the words of each topic are stored in the list.
+     * @return The journal attached to the list.
+     * @throws IOException if an I/O error occurs while reading the store or creating the new journal segment.
+     */
+    public static VocabularyJournal open(String directoryName, OurDLinkedList dll, WordStorage storage) throws IOException {
+        Path directory = Path.of(directoryName).toAbsolutePath();
+        Files.createDirectories(directory);
+        List<Path> segments = segmentsOf(directory);
+        long sequence = recover(directory, segments, dll);
+        // Drop the segments holding no valid record, such as one left with only a torn record,
+        // so that the new segment never reuses the name of a pending one
+        for (Path segment : new ArrayList<>(segments)) {
+            if (firstSequenceOf(segment) > sequence) {
+                Files.delete(segment);
+                segments.remove(segment);
+            }
+        }
+        VocabularyJournal journal = new VocabularyJournal(directory, storage, sequence);
+        // Segments left over by an interrupted compaction are compacted again with the next ones
+        journal.closedSegments.addAll(segments);
+        for (Path segment : segments) {
+            journal.journalBytes += Files.size(segment);
+        }
+        journal.startSegment();
+        dll.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Loads the snapshot of a store and replays the journal segments that follow it.
+     *
+     * @param directory The store directory.
+     * @param segments  The journal segments of the store, oldest first.
+     * @param dll       The doubly linked list receiving the vocabulary.
+     * @return The sequence number of the last record included.
+     * @throws IOException if an I/O error occurs, or if the snapshot is corrupted.
+     */
+    private static long recover(Path directory, List<Path> segments, OurDLinkedList dll) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        long sequence = 0;
+        if (Files.exists(snapshot)) {
+            sequence = VocabularySnapshot.readSequence(snapshot.toString());
+            VocabularySnapshot.read(snapshot.toString(), dll);
+        }
+        for (Path segment : segments) {
+            sequence = replay(segment, sequence, dll);
+        }
+        return sequence;
+    }
+
+    /**
+     * Lists the journal segments of a store directory.
+     *
+     * @param directory The store directory.
+     * @return The journal segments, oldest first.
+     * @throws IOException if an I/O error occurs while listing the directory.
+     */
+    private static List<Path> segmentsOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    /**
+     * Retrieves the sequence number of the first record of a journal segment, from its name.
+     *
+     * @param segment The journal segment.
+     * @return The sequence number its name starts with.
+     * @throws IOException if the name does not hold a sequence number.
+     */
+    private static long firstSequenceOf(Path segment) throws IOException {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected journal segment name " + name, e);
+        }
+    }
+
+    /**
+     * Applies the records of a journal segment that follow a given sequence number to a doubly linked list.
+     * Reading stops at the first incomplete or corrupted record, the tail left by a crash.
+     *
+     * @param segment The journal segment.
+     * @param after   The sequence number of the last record already applied.
+     * @param dll     The doubly linked list the records apply to.
+     * @return The sequence number of the last record applied, or after if none was.
+     * @throws IOException if an I/O error occurs while reading the segment, or if it is not a journal segment.
+     */
+    static long replay(Path segment, long after, OurDLinkedList dll) throws IOException {
+        long last = after;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(segment + " is not a vocabulary journal segment");
+            }
+            while (true) {
+                byte[] record;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > 1 << 30) {
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                    CRC32 crc = new CRC32();
+                    crc.update(record);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+                long recordSequence = fields.readLong();
+                if (recordSequence > last) {
+                    apply(fields.readByte(), fields, dll);
+                    last = recordSequence;
+                }
+            }
+        } catch (EOFException e) {
+            // The header itself was cut short: nothing was recorded in this segment
+        }
+        return last;
+    }
+
+    /**
+     * Applies one recorded change to a doubly linked list.
+     *
+     * @param operation The recorded operation.
+     * @param fields    The stream of the arguments of the operation.
+     * @param dll       The doubly linked list the change applies to.
+     * @throws IOException if the operation is unknown or its arguments cannot be read.
+     */
+    private static void apply(byte operation, DataInputStream fields, OurDLinkedList dll) throws IOException {
+        switch (operation) {
+            case ADD_AT_HEAD:
+                dll.addAtHead(readString(fields));
+                break;
+            case ADD_AT_TAIL:
+                dll.addAtTail(readString(fields));
+                break;
+            case APPEND_TOPIC:
+                dll.appendTopic(readString(fields), readWords(fields));
+                break;
+            case ADD_BEFORE:
+                dll.addBefore(readString(fields), readString(fields), readWords(fields));
+                break;
+            case ADD_AFTER:
+                dll.addAfter(readString(fields), readString(fields), readWords(fields));
+                break;
+            case REMOVE_HEAD:
+                dll.removeHead();
+                break;
+            case REMOVE_TAIL:
+                dll.removeTail();
+                break;
+            case REMOVE_TOPIC:
+                dll.removeValue(readString(fields));
+                break;
+            case ADD_WORD:
+                dll.addWordToTopic(readString(fields), readString(fields));
+                break;
+            case ADD_WORDS:
+                dll.addWordsToTopic(readString(fields), readWords(fields));
+                break;
+            case REMOVE_WORD:
+                dll.removeWordFromTopic(readString(fields), readString(fields));
+                break;
+            case REPLACE_WORD:
+                dll.replaceWord(readString(fields), readString(fields), readString(fields));
+                break;
+            case INSERT_AT:
+                dll.insertTopicAt(readIndex(fields), readString(fields), readWords(fields));
+                break;
+            case REMOVE_AT:
+                dll.removeTopicAt(readIndex(fields));
+                break;
+            default:
+                throw new IOException("Unknown journal operation " + operation);
+        }
+    }
+
+    /**
+     * Records a change made to the doubly linked list.
+     * Errors are kept and reported by every following {@link #flush()}, so that changes to the list never fail because of
+     * the journal; once broken, the journal records nothing until it is rebuilt.
+     *
+     * @param operation The operation performed.
+     * @param words     The words given to the operation, or null if it takes none.
+     * @param arguments The other arguments of the operation, in order.
+     */
+    void record(byte operation, Collection<String> words, String... arguments) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream fields = new DataOutputStream(bytes);
+            fields.writeLong(++sequence);
+            fields.writeByte(operation);
+            for (String argument : arguments) {
+                writeString(fields, argument);
+            }
+            if (words != null) {
+                fields.writeInt(words.size());
+                for (String word : words) {
+                    writeString(fields, word);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray(), 0, bytes.size());
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.writeInt((int) crc.getValue());
+            journalBytes += bytes.size() + 8;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes the buffered records to the disk, and starts a compaction in the background if the journal has grown large.
+     *
+     * @throws IOException if an I/O error occurs while writing, or if the journal is broken by an earlier error.
+     */
+    public void flush() throws IOException {
+        checkNotBroken();
+        try {
+            out.flush();
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        if (journalBytes > COMPACTION_BYTES && (compaction == null || compaction.isDone())) {
+            compact();
+        }
+    }
+
+    /**
+     * Starts a compaction in the background: closes the current segment, starts a new one, and lets another
+     * thread fold the closed segments into a new snapshot.
+     *
+     * @throws IOException if an I/O error occurs while closing the current segment or starting the new one,
+     *                     or if the journal is broken by an earlier error.
+     */
+    public void compact() throws IOException {
+        checkNotBroken();
+        if (sequence >= segmentStart) {
+            out.close();
+            startSegment();
+        }
+        List<Path> segments;
+        synchronized (closedSegments) {
+            if (closedSegments.isEmpty()) {
+                return;
+            }
+            segments = new ArrayList<>(closedSegments);
+            closedSegments.clear();
+        }
+        journalBytes = 0;
+        compaction = compactor.submit(() -> {
+            try {
+                compact(segments);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("The journal could not be compacted: " + e.getMessage());
+                // Keep the segments for the next compaction, which must not leave their records out
+                synchronized (closedSegments) {
+                    closedSegments.addAll(0, segments);
+                }
+            }
+        });
+    }
+
+    /**
+     * Folds closed journal segments into the snapshot of the store, then deletes them.
+     * The snapshot and the segments are read into a separate doubly linked list, so the live one is not touched.
+     *
+     * @param segments The closed segments, oldest first.
+     * @throws IOException if an I/O error occurs while reading the store or writing the new snapshot.
+     */
+    private void compact(List<Path> segments) throws IOException {
+        OurDLinkedList compacted = new OurDLinkedList(storage);
+        long last = recover(directory, segments, compacted);
+        VocabularySnapshot.write(compacted, directory.resolve(SNAPSHOT_FILE).toString(), last);
+        // Only delete the segments once the snapshot including them is in place and on the disk
+        for (Path closed : segments) {
+            Files.deleteIfExists(closed);
+        }
+    }
+
+    /**
+     * Repairs a broken journal: stores the whole doubly linked list as the snapshot of the store, deletes every journal
+     * segment, and starts a new one, so that the changes the journal missed are stored and recording resumes.
+     * It can also be called on a sound journal, to fold it into a snapshot at once.
+     *
+     * @param dll The doubly linked list the journal is attached to.
+     * @throws IOException if an I/O error occurs while writing the snapshot or starting the new segment;
+     *                     the journal then stays broken.
+     */
+    public void rebuild(OurDLinkedList dll) throws IOException {
+        try {
+            awaitCompaction();
+        } catch (IOException e) {
+            // The snapshot written below includes whatever the compaction missed
+        }
+        if (failure == null) {
+            failure = new IOException("The journal is being rebuilt");
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // The segment is deleted below
+        }
+        // The snapshot is on the disk, directory entry included, once written, so the segments can go
+        VocabularySnapshot.write(dll, directory.resolve(SNAPSHOT_FILE).toString(), sequence);
+        for (Path closed : segmentsOf(directory)) {
+            Files.deleteIfExists(closed);
+        }
+        synchronized (closedSegments) {
+            closedSegments.clear();
+        }
+        segment = null;
+        journalBytes = 0;
+        startSegment();
+        failure = null;
+    }
+
+    /**
+     * Fails if an earlier write failed, since the journal misses the changes made since.
+     *
+     * @throws IOException if the journal is broken, caused by the first error met.
+     */
+    private void checkNotBroken() throws IOException {
+        if (failure != null) {
+            throw new IOException("The journal is broken since a write failed, changes are no longer stored: "
+                    + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Waits for the compaction in progress, if any, to finish.
+     *
+     * @throws IOException if interrupted while waiting.
+     */
+    public void awaitCompaction() throws IOException {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the journal compaction", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Flushes the journal and closes the current segment, after waiting for the compaction in progress to finish.
+     *
+     * @throws IOException if an I/O error occurs while flushing or closing the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the sequence number of the last record written.
+     *
+     * @return The sequence number of the last record.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Creates a new journal segment, named after the sequence number of its first record, and makes it current.
+     * The segment and its directory entry are forced to the disk. The previous current segment, if any, is left for the next compaction.
+     *
+     * @throws IOException if the segment cannot be created.
+     */
+    private void startSegment() throws IOException {
+        if (segment != null) {
+            synchronized (closedSegments) {
+                closedSegments.add(segment);
+            }
+        }
+        segmentStart = sequence + 1;
+        segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence + 1, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+        channel.force(true);
+        // Forcing the segment does not persist its directory entry
+        OurDLinkedList.syncDirectory(directory);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its UTF-8 bytes.
+     *
+     * @param out    The stream to write to.
+     * @param string The string to write.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in The stream to read from.
+     * @return The string read.
+     * @throws IOException if an I/O error occurs, or if the length is invalid.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Corrupted journal record: invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a topic position written as a string.
+     *
+     * @param in The stream to read from.
+     * @return The position read.
+     * @throws IOException if an I/O error occurs, or if the string is not a number.
+     */
+    private static int readIndex(DataInputStream in) throws IOException {
+        String index = readString(in);
+        try {
+            return Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupted journal record: invalid position " + index, e);
+        }
+    }
+
+    /**
+     * Reads a list of words written as a count followed by the words.
+     *
+     * @param in The stream to read from.
+     * @return The words read, in order.
+     * @throws IOException if an I/O error occurs, or if the count is invalid.
+     */
+    private static List<String> readWords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Corrupted journal record: invalid word count " + count);
+        }
+        ArrayList<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add(readString(in));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,201 @@
+package testing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Generates lookup load against a {@link VocabularyServer} and reports throughput and latency percentiles.
+ * <p>
+ * The client first samples words from the served vocabulary, then opens the requested number of connections,
+ * each sending its share of requests one at a time: mostly word searches, some of them missing, mixed with prefix queries.
+ * For example, to send 100,000 requests over 1,000 connections:
+ * <pre>
+ * java -cp bin testing.VocabularyLoadClient 7777 1000 100
+ * </pre>
+ * The arguments are the port of the server, the number of connections and the number of requests per connection.
+ */
+public class VocabularyLoadClient {
+
+    private static final long SEED = 42;
+    /** Maximum number of topics from which words are sampled. */
+    private static final int SAMPLED_TOPICS = 100;
+
+    private final int port;
+    private final String[] words;
+
+    /**
+     * Constructs a client for the server listening on the given loopback port, sampling words from its vocabulary.
+     *
+     * @param port The port of the server.
+     * @throws IOException if the server cannot be reached.
+     */
+    public VocabularyLoadClient(int port) throws IOException {
+        this.port = port;
+        ArrayList<String> sample = new ArrayList<>();
+        try (Connection connection = new Connection(port)) {
+            List<String> topics = connection.request("topics");
+            for (int i = 0; i < topics.size() && i < SAMPLED_TOPICS; i++) {
+                sample.addAll(connection.request("words|" + topics.get(i)));
+            }
+        }
+        if (sample.isEmpty()) {
+            sample.add("word");
+        }
+        this.words = sample.toArray(new String[0]);
+    }
+
+    /**
+     * Sends requests over concurrent connections and prints the throughput and latency percentiles.
+     *
+     * @param connections The number of concurrent connections.
+     * @param requests    The number of requests sent over each connection.
+     * @throws IOException if a connection fails.
+     */
+    public void run(int connections, int requests) throws IOException {
+        ExecutorService clients = VocabularyServer.newThreadPerTaskExecutor();
+        ArrayList<Future<long[]>> results = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            Random random = new Random(SEED + c);
+            results.add(clients.submit(() -> sendRequests(random, requests)));
+        }
+        long[] latencies = new long[connections * requests];
+        try {
+            for (int c = 0; c < connections; c++) {
+                System.arraycopy(results.get(c).get(), 0, latencies, c * requests, requests);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the connections", e);
+        } catch (ExecutionException e) {
+            throw new IOException("A connection failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            clients.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("%,d request(s) over %,d connection(s) in %.2f s: %,.0f requests/s%n",
+                latencies.length, connections, seconds, latencies.length / seconds);
+        System.out.printf("Latency (us): p50 %,.0f  p99 %,.0f  p99.9 %,.0f  max %,.0f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e3);
+    }
+
+    /**
+     * Sends requests over one connection, waiting for each response before sending the next request.
+     *
+     * @param random   The source of the words looked up.
+     * @param requests The number of requests to send.
+     * @return The latency of each request, in nanoseconds.
+     * @throws IOException if the connection fails.
+     */
+    private long[] sendRequests(Random random, int requests) throws IOException {
+        long[] latencies = new long[requests];
+        try (Connection connection = new Connection(port)) {
+            for (int i = 0; i < requests; i++) {
+                String word = words[random.nextInt(words.length)];
+                int kind = random.nextInt(10);
+                String request = kind < 7 ? "search|" + word
+                        : kind < 9 ? "search|" + word + "-missing"
+                        : "prefix|" + word.substring(0, Math.min(3, word.length()));
+                long start = System.nanoTime();
+                connection.request(request);
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    /**
+     * Retrieves a percentile of sorted latencies.
+     *
+     * @param latencies The latencies in nanoseconds, sorted.
+     * @param fraction  The percentile, between 0 and 1.
+     * @return The latency at that percentile, in microseconds.
+     */
+    private static double percentile(long[] latencies, double fraction) {
+        int index = (int) Math.ceil(fraction * latencies.length) - 1;
+        return latencies[Math.max(0, index)] / 1e3;
+    }
+
+    /**
+     * Represents one connection to the server.
+     */
+    private static class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+
+        /**
+         * Opens a connection to the server listening on the given loopback port.
+         *
+         * @param port The port of the server.
+         * @throws IOException if the connection cannot be opened.
+         */
+        public Connection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Sends a request and waits for its response.
+         *
+         * @param request The request line.
+         * @return The results of the request.
+         * @throws IOException if the connection fails or the server reports an error.
+         */
+        public List<String> request(String request) throws IOException {
+            out.write(request);
+            out.write('\n');
+            out.flush();
+            String response = in.readLine();
+            if (response == null) {
+                throw new IOException("The server closed the connection");
+            }
+            if (!response.startsWith("OK")) {
+                throw new IOException(request + ": " + VocabularyServer.unescape(response));
+            }
+            List<String> results = Arrays.asList(response.split("\t", -1));
+            results.replaceAll(VocabularyServer::unescape);
+            return results.subList(1, results.size());
+        }
+
+        /**
+         * Closes the connection.
+         *
+         * @throws IOException if an I/O error occurs while closing the socket.
+         */
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Runs the load generator.
+     *
+     * @param args The port of the server, the number of connections and the number of requests per connection.
+     * @throws IOException if a connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        new VocabularyLoadClient(port).run(connections, requests);
+    }
+}
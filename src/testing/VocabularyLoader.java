@@ -0,0 +1,256 @@
+package testing;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
+/**
+ * Loads vocabulary files in the "#topic" format into a topic list.
+ * The file is memory-mapped and cut into chunks at line boundaries, the chunks are parsed
+ * in parallel on a fork/join pool, and the parsed topics are appended to the list in file order.
+ */
+public class VocabularyLoader {
+
+    /** Approximate number of bytes parsed by a single task. */
+    private static final long CHUNK_SIZE = 16L << 20;
+    /** Number of bytes mapped at a time while looking for a line boundary. */
+    private static final int WINDOW_SIZE = 64 << 10;
+
+    private VocabularyLoader() {
+    }
+
+    /**
+     * Loads every topic of the file and appends it, with its words, at the tail of the topic list.
+     * Empty lines are skipped, leading and trailing whitespace is trimmed, and words appearing before
+     * the first topic are ignored.
+     *
+     * @param fileName The name of the file to load.
+     * @param dll      The topic list receiving the topics.
+     * @return The number of topics loaded.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    public static int load(String fileName, TopicList dll) throws IOException {
+        int[] topicCount = {0};
+        read(fileName, (topic, words) -> {
+            dll.appendTopic(topic, words);
+            topicCount[0]++;
+        });
+        return topicCount[0];
+    }
+
+    /**
+     * Reads every topic of the file, with its words, following the same rules as {@link #load(String, TopicList)}.
+     *
+     * @param fileName The name of the file to read.
+     * @param action   The action receiving each topic and its words, in file order.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    static void read(String fileName, BiConsumer<String, ArrayList<String>> action) throws IOException {
+        ChunkResult result;
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel);
+            ParseTask task = new ParseTask(channel, boundaries, 0, boundaries.length - 1);
+            result = boundaries.length > 2 ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+            if (task.failure != null) {
+                throw task.failure;
+            }
+        }
+        for (Section section : result.sections) {
+            action.accept(section.topic, section.words);
+        }
+    }
+
+    /**
+     * Cuts the file into chunks of about {@link #CHUNK_SIZE} bytes, each one starting at the beginning of a line.
+     *
+     * @param channel The channel of the file.
+     * @return The offsets where the chunks start, followed by the size of the file.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    private static long[] findChunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        long position = CHUNK_SIZE;
+        while (position < size) {
+            long lineStart = nextLineStart(channel, position, size);
+            if (lineStart >= size) {
+                break;
+            }
+            boundaries.add(lineStart);
+            position = lineStart + CHUNK_SIZE;
+        }
+        boundaries.add(size);
+        long[] offsets = new long[boundaries.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = boundaries.get(i);
+        }
+        return offsets;
+    }
+
+    /**
+     * Finds the first line starting at or after the given offset.
+     *
+     * @param channel The channel of the file.
+     * @param from    The offset to start looking from, greater than 0.
+     * @param size    The size of the file.
+     * @return The offset of the start of the line, or the size of the file if there is no further line.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        long position = from - 1;
+        while (position < size) {
+            int length = (int) Math.min(WINDOW_SIZE, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines of one chunk of the file.
+     *
+     * @param text The decoded text of the chunk.
+     * @return The words found before the first topic of the chunk and the topics of the chunk.
+     */
+    private static ChunkResult parse(CharBuffer text) {
+        ChunkResult result = new ChunkResult();
+        ArrayList<String> currentWords = result.leadingWords;
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            // Remove leading and trailing whitespace
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && text.get(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.get(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                String line = text.subSequence(start, end).toString();
+                if (line.startsWith("#")) {
+                    Section section = new Section(line.substring(1).trim());
+                    result.sections.add(section);
+                    currentWords = section.words;
+                } else {
+                    currentWords.add(line);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Represents a topic read from the file together with its words.
+     */
+    private static class Section {
+        private String topic;
+        private ArrayList<String> words;
+
+        /**
+         * Constructs a section with the given topic and no words.
+         *
+         * @param topic The topic of the section.
+         */
+        public Section(String topic) {
+            this.topic = topic;
+            this.words = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Represents the parsed content of a range of the file.
+     * The leading words belong to the last topic of the range that comes before it.
+     */
+    private static class ChunkResult {
+        private ArrayList<String> leadingWords = new ArrayList<>();
+        private ArrayList<Section> sections = new ArrayList<>();
+
+        /**
+         * Appends the content of the range that directly follows this one.
+         *
+         * @param next The parsed content of the following range.
+         * @return This result, now covering both ranges.
+         */
+        public ChunkResult append(ChunkResult next) {
+            if (sections.isEmpty()) {
+                leadingWords.addAll(next.leadingWords);
+            } else {
+                sections.get(sections.size() - 1).words.addAll(next.leadingWords);
+            }
+            sections.addAll(next.sections);
+            return this;
+        }
+    }
+
+    /**
+     * Parses a range of chunks, splitting it in halves until a single chunk is left.
+     */
+    private static class ParseTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] boundaries;
+        private final int first;
+        private final int last;
+        /** The first I/O error met by this task or one of its subtasks. */
+        private IOException failure;
+
+        /**
+         * Constructs a task parsing the chunks from first (inclusive) to last (exclusive).
+         *
+         * @param channel    The channel of the file.
+         * @param boundaries The offsets where the chunks start, followed by the size of the file.
+         * @param first      The index of the first chunk to parse.
+         * @param last       The index after the last chunk to parse.
+         */
+        public ParseTask(FileChannel channel, long[] boundaries, int first, int last) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                ParseTask left = new ParseTask(channel, boundaries, first, middle);
+                ParseTask right = new ParseTask(channel, boundaries, middle, last);
+                right.fork();
+                ChunkResult result = left.compute();
+                result.append(right.join());
+                failure = left.failure != null ? left.failure : right.failure;
+                return result;
+            }
+            try {
+                long start = boundaries[first];
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, boundaries[last] - start);
+                return parse(StandardCharsets.UTF_8.decode(bytes));
+            } catch (IOException e) {
+                failure = e;
+                return new ChunkResult();
+            }
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package testing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a vocabulary to local clients over a line-based protocol on a loopback socket.
+ * <p>
+ * Each request is one line holding a command and its arguments separated by '|', parsed as by {@link BatchRunner}:
+ * arguments are trimmed, and empty words are skipped.
+ * Each response is one line: "OK" followed by the results separated by tabs, or "ERR" followed by a message.
+ * Backslashes, tabs and line breaks in the results and messages are escaped as "\\", "\t", "\n" and "\r",
+ * so that they cannot break the response into fields or lines; {@link #unescape(String)} restores them.
+ * The commands are:
+ * <pre>
+ * topics                                   list the topics
+ * words | topic                            list the words of a topic
+ * search | word                            list the topics containing a word
+ * prefix | prefix                          list the words starting with a prefix
+ * append | topic | word ...                add a topic at the tail
+ * add-before | reference | topic | word ... add a topic before another one
+ * add-after | reference | topic | word ...  add a topic after another one
+ * remove | topic                           remove a topic
+ * add-word | topic | word                  add a word at the beginning of a topic
+ * remove-word | topic | word               remove a word from a topic
+ * modify-word | topic | old word | new word replace a word of a topic
+ * </pre>
+ * Every connection is handled by its own thread, a virtual thread when the Java runtime supports them,
+ * so thousands of mostly idle clients cost little. Clients may send several requests before reading the responses.
+ */
+public class VocabularyServer implements Closeable {
+
+    private final ConcurrentDLinkedList vocabulary;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+
+    /**
+     * Constructs a server for the given vocabulary, listening on the loopback interface.
+     *
+     * @param vocabulary The vocabulary to serve.
+     * @param port       The port to listen on, or 0 to pick a free one.
+     * @throws IOException if the socket cannot be opened.
+     */
+    public VocabularyServer(ConcurrentDLinkedList vocabulary, int port) throws IOException {
+        this.vocabulary = vocabulary;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.connections = newThreadPerTaskExecutor();
+        this.acceptor = new Thread(this::acceptConnections, "vocabulary-server-acceptor");
+    }
+
+    /**
+     * Starts accepting connections in the background.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Retrieves the port the server listens on.
+     *
+     * @return The local port of the server.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the server socket.
+     * Connections already open are served until their clients close them.
+     *
+     * @throws IOException if an I/O error occurs while closing the socket.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdown();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, handing each one to its own thread.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                return; // The server socket was closed
+            } catch (IOException e) {
+                System.out.println("Error accepting a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one client until it closes the connection.
+     *
+     * @param socket The socket of the client.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                out.write(handle(line));
+                out.write('\n');
+                // Answer pipelined requests together, flushing once no further request is waiting
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away, nothing left to answer
+        }
+    }
+
+    /**
+     * Runs one request and builds its response.
+     *
+     * @param request The request line.
+     * @return The response line, without its line terminator.
+     */
+    String handle(String request) {
+        List<String> command = BatchRunner.split(request.trim());
+        String name = command.get(0);
+        List<String> arguments = command.subList(1, command.size());
+        try {
+            switch (name) {
+                case "topics":
+                    return ok(List.of(vocabulary.getTopics()));
+                case "words": {
+                    BatchRunner.requireArguments(arguments, 1);
+                    ArrayList<String> words = vocabulary.getWords(arguments.get(0));
+                    return words != null ? ok(words) : topicNotFound(arguments.get(0));
+                }
+                case "search":
+                    BatchRunner.requireArguments(arguments, 1);
+                    return ok(vocabulary.searchWordTopics(arguments.get(0)));
+                case "prefix":
+                    BatchRunner.requireArguments(arguments, 1);
+                    return ok(vocabulary.getWordsWithPrefix(arguments.get(0)));
+                case "append":
+                    BatchRunner.requireArguments(arguments, 1);
+                    vocabulary.appendTopic(arguments.get(0), BatchRunner.words(arguments, 1));
+                    return "OK";
+                case "add-before":
+                    BatchRunner.requireArguments(arguments, 2);
+                    return vocabulary.addBefore(arguments.get(0), arguments.get(1), BatchRunner.words(arguments, 2))
+                            ? "OK" : topicNotFound(arguments.get(0));
+                case "add-after":
+                    BatchRunner.requireArguments(arguments, 2);
+                    return vocabulary.addAfter(arguments.get(0), arguments.get(1), BatchRunner.words(arguments, 2))
+                            ? "OK" : topicNotFound(arguments.get(0));
+                case "remove":
+                    BatchRunner.requireArguments(arguments, 1);
+                    return vocabulary.removeValue(arguments.get(0)) != null ? "OK" : topicNotFound(arguments.get(0));
+                case "add-word":
+                    BatchRunner.requireArguments(arguments, 2);
+                    return vocabulary.addWord(arguments.get(0), arguments.get(1)) ? "OK" : topicNotFound(arguments.get(0));
+                case "remove-word":
+                    BatchRunner.requireArguments(arguments, 2);
+                    return vocabulary.removeWord(arguments.get(0), arguments.get(1)) ? "OK" : "ERR word not found";
+                case "modify-word":
+                    BatchRunner.requireArguments(arguments, 3);
+                    return vocabulary.modifyWord(arguments.get(0), arguments.get(1), arguments.get(2)) ? "OK" : "ERR word not found";
+                default:
+                    return "ERR unknown command '" + escape(name) + "'";
+            }
+        } catch (IllegalArgumentException e) {
+            return "ERR " + escape(name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a successful response listing the given results.
+     *
+     * @param results The results of the request.
+     * @return The response line.
+     */
+    private static String ok(List<String> results) {
+        StringBuilder response = new StringBuilder("OK");
+        for (String result : results) {
+            response.append('\t').append(escape(result));
+        }
+        return response.toString();
+    }
+
+    /**
+     * Escapes the characters of a value that would break a response: backslashes, tabs and line breaks.
+     *
+     * @param value The value to escape.
+     * @return The escaped value, the value itself if it holds none of those characters.
+     */
+    static String escape(String value) {
+        int i = 0;
+        while (i < value.length() && "\\\t\n\r".indexOf(value.charAt(i)) < 0) {
+            i++;
+        }
+        if (i == value.length()) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+        for (; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Restores a value escaped by {@link #escape(String)}.
+     *
+     * @param value The escaped value.
+     * @return The original value.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * Builds the error response of a missing topic.
+     *
+     * @param topic The topic that was not found.
+     * @return The response line.
+     */
+    private static String topicNotFound(String topic) {
+        return "ERR topic '" + escape(topic) + "' not found";
+    }
+
+    /**
+     * Creates an executor running each task on a new virtual thread when the Java runtime supports them
+     * (Java 21 and later), or on pooled platform threads otherwise.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Starts a server on a vocabulary loaded from files and serves it until the process is stopped.
+     *
+     * @param args The port to listen on, followed by the vocabulary files to load.
+     * @throws IOException if the socket cannot be opened or a file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        ConcurrentDLinkedList vocabulary = new ConcurrentDLinkedList();
+        for (int i = 1; i < args.length; i++) {
+            vocabulary.load(args[i]);
+        }
+        VocabularyServer server = new VocabularyServer(vocabulary, port);
+        server.start();
+        System.out.println("Serving " + vocabulary.getSize() + " topic(s) on " + InetAddress.getLoopbackAddress().getHostAddress()
+                + ":" + server.getPort());
+    }
+}
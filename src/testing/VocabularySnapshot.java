@@ -0,0 +1,324 @@
+package testing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reads and writes the binary snapshot format of a vocabulary.
+ * <p>
+ * A snapshot is laid out as follows, all numbers being big-endian:
+ * <ul>
+ * <li>a header: the magic number {@link #MAGIC}, the format version and, since version 2, the sequence number
+ * of the last journal record included in the snapshot (see {@link VocabularyJournal});</li>
+ * <li>a string table: the number of distinct strings, then each string as its UTF-8 length followed by its UTF-8 bytes;</li>
+ * <li>a topic directory: the number of topics, then for each topic the string index of its name,
+ * its number of words and the file offset of its words;</li>
+ * <li>the words: for each topic in order, the string index of each of its words.</li>
+ * </ul>
+ * Every topic name and word is stored once in the string table, however many times it is used.
+ * Offsets are 64-bit, so a snapshot may exceed 2 GB; reading checks that the words of each topic start at the offset
+ * given by the directory, which detects a truncated or inconsistent directory.
+ */
+public class VocabularySnapshot {
+
+    /** The first four bytes of every snapshot, "VOCB" in ASCII. */
+    public static final int MAGIC = 0x564F4342;
+    /** The version of the format written by this class. Version 1 snapshots, without a sequence number, can still be read. */
+    public static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private VocabularySnapshot() {
+    }
+
+    /**
+     * Checks whether a file starts like a snapshot.
+     *
+     * @param fileName The name of the file to check.
+     * @return true if the file starts with the snapshot magic number.
+     * @throws IOException if an I/O error occurs while reading the file.
+     */
+    public static boolean isSnapshot(String fileName) throws IOException {
+        try (InputStream in = Files.newInputStream(Path.of(fileName))) {
+            byte[] header = in.readNBytes(4);
+            return header.length == 4
+                    && ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | (header[3] & 0xFF)) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes every topic of the list, with its words, to a snapshot file.
+     * The snapshot is written to a temporary file that is forced to the disk, then replaces the target.
+     *
+     * @param dll      The topic list to write.
+     * @param fileName The name of the snapshot file.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file.
+     */
+    public static int write(TopicList dll, String fileName) throws IOException {
+        return write(dll, fileName, 0);
+    }
+
+    /**
+     * Writes every topic of the list, with its words, to a snapshot file
+     * recording the sequence number of the last journal record it includes.
+     * The snapshot is written to a temporary file that is forced to the disk, then replaces the target,
+     * and the directory is forced to the disk too, so that the new snapshot survives a crash once this method returns.
+     *
+     * @param dll      The topic list to write.
+     * @param fileName The name of the snapshot file.
+     * @param sequence The sequence number of the last journal record applied to the list, 0 if none.
+     * @return The number of words written.
+     * @throws IOException if an I/O error occurs while writing the file.
+     */
+    public static int write(TopicList dll, String fileName, long sequence) throws IOException {
+        // Number every distinct string and record the words of each topic as string indexes
+        HashMap<String, Integer> stringIndexes = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+        int[] topicNames = new int[dll.getSize()];
+        int[][] topicWords = new int[dll.getSize()][];
+        int[] topicCount = {0, 0};
+        dll.forEachTopic((topic, words) -> {
+            int[] wordIndexes = new int[words.getSize()];
+            int i = 0;
+            for (String word : words) {
+                wordIndexes[i++] = indexOf(word, stringIndexes, strings);
+            }
+            topicNames[topicCount[0]] = indexOf(topic, stringIndexes, strings);
+            topicWords[topicCount[0]++] = wordIndexes;
+            topicCount[1] += wordIndexes.length;
+        });
+
+        Path target = Path.of(fileName).toAbsolutePath();
+        Path temporary = OurDLinkedList.temporaryFileFor(target);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+                // DataOutputStream.size() stops counting at 2 GB, so the position is tracked here
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sequence);
+                out.writeInt(strings.size());
+                long position = 20;
+                for (String string : strings) {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    position += 4 + bytes.length;
+                }
+                out.writeInt(topicNames.length);
+                position += 4;
+                long wordsOffset = position + 16L * topicNames.length;
+                for (int t = 0; t < topicNames.length; t++) {
+                    out.writeInt(topicNames[t]);
+                    out.writeInt(topicWords[t].length);
+                    out.writeLong(wordsOffset);
+                    wordsOffset += 4L * topicWords[t].length;
+                }
+                for (int[] wordIndexes : topicWords) {
+                    for (int wordIndex : wordIndexes) {
+                        out.writeInt(wordIndex);
+                    }
+                }
+                // The snapshot must be on the disk before it replaces the previous one, which the journal may then drop
+                out.flush();
+                channel.force(true);
+            }
+            OurDLinkedList.moveIntoPlace(temporary, target);
+            OurDLinkedList.syncDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return topicCount[1];
+    }
+
+    /**
+     * Reads a snapshot file and appends its topics, with their words, at the tail of the topic list.
+     *
+     * @param fileName The name of the snapshot file.
+     * @param dll      The topic list receiving the topics.
+     * @return The number of topics read.
+     * @throws IOException if an I/O error occurs while reading the file, or if the file is not a valid snapshot.
+     */
+    public static int read(String fileName, TopicList dll) throws IOException {
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(Path.of(fileName)), BUFFER_SIZE));
+        try (DataInputStream in = new DataInputStream(counter)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(fileName + " is not a vocabulary snapshot");
+            }
+            readSequence(in, fileName);
+            String[] strings = new String[checkCount(in.readInt(), fileName)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[checkCount(in.readInt(), fileName)];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int topicCount = checkCount(in.readInt(), fileName);
+            String[] topicNames = new String[topicCount];
+            int[] wordCounts = new int[topicCount];
+            long[] wordOffsets = new long[topicCount];
+            for (int t = 0; t < topicCount; t++) {
+                topicNames[t] = stringAt(strings, in.readInt(), fileName);
+                wordCounts[t] = checkCount(in.readInt(), fileName);
+                wordOffsets[t] = in.readLong();
+            }
+            for (int t = 0; t < topicCount; t++) {
+                if (wordOffsets[t] != counter.position) {
+                    throw new IOException("Corrupted snapshot " + fileName + ": the words of topic " + t + " are at offset "
+                            + counter.position + ", not " + wordOffsets[t]);
+                }
+                String[] words = new String[wordCounts[t]];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = stringAt(strings, in.readInt(), fileName);
+                }
+                dll.appendTopic(topicNames[t], Arrays.asList(words));
+            }
+            return topicCount;
+        }
+    }
+
+    /**
+     * Reads the sequence number of the last journal record included in a snapshot file.
+     *
+     * @param fileName The name of the snapshot file.
+     * @return The sequence number, 0 for a snapshot written outside of a journal or in version 1.
+     * @throws IOException if an I/O error occurs while reading the file, or if the file is not a valid snapshot.
+     */
+    public static long readSequence(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(Path.of(fileName)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(fileName + " is not a vocabulary snapshot");
+            }
+            return readSequence(in, fileName);
+        }
+    }
+
+    /**
+     * Reads the version, and the sequence number if the version has one, from the header of a snapshot.
+     *
+     * @param in       The stream, positioned just after the magic number.
+     * @param fileName The name of the file, for error messages.
+     * @return The sequence number, 0 for a version 1 snapshot.
+     * @throws IOException if an I/O error occurs, or if the version is not supported.
+     */
+    private static long readSequence(DataInputStream in, String fileName) throws IOException {
+        int version = in.readInt();
+        if (version == 1) {
+            return 0;
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + fileName);
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Represents an input stream counting the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        /** Number of bytes read so far, the offset in the file of the next byte. */
+        private long position;
+
+        /**
+         * Constructs a stream counting the bytes read from another one.
+         *
+         * @param in The stream to read from.
+         */
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = in.read(bytes, offset, length);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = in.skip(count);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the index of a string in the string table, adding it to the table if needed.
+     *
+     * @param string        The string to look up.
+     * @param stringIndexes The index of each string already in the table.
+     * @param strings       The string table.
+     * @return The index of the string in the table.
+     */
+    private static int indexOf(String string, HashMap<String, Integer> stringIndexes, ArrayList<String> strings) {
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            stringIndexes.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    /**
+     * Retrieves a string of the string table by index.
+     *
+     * @param strings  The string table.
+     * @param index    The index read from the file.
+     * @param fileName The name of the file, for error messages.
+     * @return The string at the index.
+     * @throws IOException if the index is outside the string table.
+     */
+    private static String stringAt(String[] strings, int index, String fileName) throws IOException {
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("Corrupted snapshot " + fileName + ": string index " + index + " out of range");
+        }
+        return strings[index];
+    }
+
+    /**
+     * Checks that a count or length read from the file is not negative.
+     *
+     * @param count    The value read from the file.
+     * @param fileName The name of the file, for error messages.
+     * @return The value read from the file.
+     * @throws IOException if the value is negative.
+     */
+    private static int checkCount(int count, String fileName) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupted snapshot " + fileName + ": negative count " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,141 @@
+package testing;
+
+import java.util.Collection;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Represents an ordered list of words, as stored for each topic of an {@link OurDLinkedList}.
+ * Words can be iterated over in order with a for-each loop, or processed with sequential or parallel streams.
+ */
+public interface WordList extends Iterable<String> {
+
+    /**
+     * Adds the specified value at the beginning of the list.
+     *
+     * @param newValue The value to be added at the beginning of the list.
+     */
+    void addAtHead(String newValue);
+
+    /**
+     * Adds the specified value at the end of the list.
+     *
+     * @param newValue The value to be added at the end of the list.
+     */
+    void addAtEnd(String newValue);
+
+    /**
+     * Adds all the given values at the end of the list, keeping their order.
+     *
+     * @param newValues The values to be added at the end of the list.
+     */
+    void addAll(Collection<String> newValues);
+
+    /**
+     * Adds the specified value after the first occurrence of another value.
+     * If that value does not exist in the list, the new value is not added.
+     *
+     * @param value    The value after which the new value should be added.
+     * @param newValue The value to be added.
+     */
+    void addAfter(String value, String newValue);
+
+    /**
+     * Removes and returns the value at the beginning of the list.
+     *
+     * @return The value removed from the beginning of the list, or null if the list is empty.
+     */
+    String removeHead();
+
+    /**
+     * Removes and returns the value at the end of the list.
+     *
+     * @return The value removed from the end of the list, or null if the list is empty.
+     */
+    String removeEnd();
+
+    /**
+     * Removes the first occurrence of the specified value from the list.
+     *
+     * @param valueToRemove The value to be removed from the list.
+     * @return The value removed from the list, or null if the specified value is not found.
+     */
+    String removeValue(String valueToRemove);
+
+    /**
+     * Removes and returns the value following the first occurrence of the specified value.
+     *
+     * @param data The value after which the value to be removed is located.
+     * @return The value removed from the list, or null if the specified value is not found or is the last one.
+     */
+    String removeAfter(String data);
+
+    /**
+     * Replaces the first value equal to the old value with the new value, keeping its position.
+     *
+     * @param oldValue The value to be replaced.
+     * @param newValue The value replacing it.
+     * @return true if the old value was found and replaced.
+     */
+    boolean replace(String oldValue, String newValue);
+
+    /**
+     * Checks whether the list holds a value equal to the given one.
+     *
+     * @param value The value to look for.
+     * @return true if the value is in the list.
+     */
+    boolean contains(String value);
+
+    /**
+     * Retrieves the number of values in the list.
+     *
+     * @return The number of values in the list.
+     */
+    int getSize();
+
+    /**
+     * Displays the content of the list.
+     * If the list is empty, prints a message indicating so.
+     */
+    void display();
+
+    /**
+     * Retrieves the first value of the list.
+     *
+     * @return The first value of the list, or null if the list is empty.
+     */
+    String getFirstWord();
+
+    /**
+     * Retrieves a spliterator over the values of the list, in order.
+     * It knows the number of values, and splits off batches of values so that parallel streams share the work.
+     * Like the iterator, it is fail-fast.
+     *
+     * @return A spliterator over the values of the list.
+     */
+    @Override
+    default Spliterator<String> spliterator() {
+        return Spliterators.spliterator(iterator(), getSize(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Retrieves a sequential stream of the values of the list, in order.
+     *
+     * @return A stream of the values of the list.
+     */
+    default Stream<String> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Retrieves a parallel stream of the values of the list.
+     *
+     * @return A parallel stream of the values of the list.
+     */
+    default Stream<String> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+}
@@ -0,0 +1,21 @@
+package testing;
+
+/**
+ * Receives the changes made to the words of a {@link WordList}.
+ * Used by {@link OurDLinkedList} to keep its word indexes in sync with each topic.
+ */
+interface WordListener {
+    /**
+     * Called after a word has been added to the list.
+     *
+     * @param word The word that was added.
+     */
+    void wordAdded(String word);
+
+    /**
+     * Called after a word has been removed from the list.
+     *
+     * @param word The word that was removed.
+     */
+    void wordRemoved(String word);
+}
@@ -0,0 +1,305 @@
+package testing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one instance of each distinct word and topic among all the vocabularies of the process.
+ * <p>
+ * Every word stored in a word list, and every topic stored in a doubly linked list, goes through {@link #intern(String)}.
+ * A string equal to one already pooled is replaced by the pooled instance, so a word repeated across topics and files
+ * is kept in memory once. The pool only holds weak references: a string that no list holds any more is collected as
+ * usual and leaves the pool.
+ * <p>
+ * Since stored words are always pooled instances, a word list can look for a value by reference once the value is
+ * replaced by its pooled instance with {@link #find(String)}, and a value the pool does not know is in no list at all.
+ * <p>
+ * The pool is split into segments by hash, each one a hash table whose entries are the weak references themselves,
+ * chained by bucket, so a pooled string costs a single small object. Chains are never modified in place: an entry is
+ * removed by copying the entries before it, and a segment grows by copying its table. Lookups therefore read the
+ * chains without any lock, and {@link #intern(String)} only locks the segment of a string the pool does not hold yet,
+ * so concurrent vocabularies do not wait for each other on words already pooled.
+ */
+public final class WordPool {
+
+    /** Estimated size of a String object, without its characters. */
+    private static final int STRING_OVERHEAD = 24;
+    /** Estimated size of an empty byte array. */
+    private static final int ARRAY_OVERHEAD = 16;
+
+    /** Number of segments, a power of two. */
+    private static final int SEGMENTS = 64;
+    /** Shift selecting the segment from the high bits of a hash, leaving the low bits to the buckets. */
+    private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+    /** Initial number of buckets of each segment, a power of two. */
+    private static final int INITIAL_CAPACITY = 1 << 4;
+
+    /** Reads and publishes the buckets of a table with acquire and release semantics. */
+    private static final VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+    private static final Segment[] segments = new Segment[SEGMENTS];
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder bytesSaved = new LongAdder();
+
+    private WordPool() {
+    }
+
+    /**
+     * Represents a pooled string, weakly referenced, in the chain of its bucket.
+     */
+    private static final class Entry extends WeakReference<String> {
+        private final int hash;
+        private final Entry next;
+
+        /**
+         * Constructs an entry for a string.
+         *
+         * @param value The string to pool.
+         * @param hash  The spread hash code of the string.
+         * @param next  The following entry of the bucket.
+         * @param queue The queue of the segment, receiving the entry once the string is collected.
+         */
+        private Entry(String value, int hash, Entry next, ReferenceQueue<String> queue) {
+            super(value, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Represents the hash table of the strings whose hash selects it. Its methods changing the table are synchronized.
+     */
+    private static final class Segment {
+        /** Receives the entries of the pooled strings that were collected. */
+        private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+        /** Chains of entries, by hash; the length is a power of two. Replaced, never modified, when growing. */
+        private volatile Entry[] table = new Entry[INITIAL_CAPACITY];
+        /** Number of entries in the table, including the ones whose string was collected but not yet dropped. */
+        private int count;
+
+        /**
+         * Retrieves the pooled string equal to a value, without locking.
+         *
+         * @param value The string to look for.
+         * @param hash  The spread hash code of the string.
+         * @return The pooled string equal to the value, or null if none is pooled.
+         */
+        private String find(String value, int hash) {
+            Entry[] tab = table;
+            for (Entry entry = (Entry) BUCKETS.getAcquire(tab, hash & (tab.length - 1)); entry != null; entry = entry.next) {
+                if (entry.hash == hash) {
+                    String pooled = entry.get();
+                    if (value.equals(pooled)) {
+                        return pooled;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Retrieves the pooled string equal to a value, pooling the value if none is pooled.
+         *
+         * @param value The string to intern.
+         * @param hash  The spread hash code of the string.
+         * @return The pooled string equal to the value.
+         */
+        private synchronized String intern(String value, int hash) {
+            dropCollected();
+            String pooled = find(value, hash);
+            if (pooled != null) {
+                return pooled;
+            }
+            if (++count > table.length - (table.length >>> 2)) {
+                resize();
+            }
+            Entry[] tab = table;
+            int index = hash & (tab.length - 1);
+            BUCKETS.setRelease(tab, index, new Entry(value, hash, (Entry) BUCKETS.getAcquire(tab, index), collected));
+            return value;
+        }
+
+        /**
+         * Retrieves the number of strings of the segment.
+         *
+         * @return The number of pooled strings still in use.
+         */
+        private synchronized int size() {
+            dropCollected();
+            return count;
+        }
+
+        /**
+         * Unlinks the entries of the strings collected since the last call, copying the entries preceding each one.
+         */
+        private void dropCollected() {
+            for (Reference<? extends String> polled; (polled = collected.poll()) != null; ) {
+                Entry dropped = (Entry) polled;
+                Entry[] tab = table;
+                int index = dropped.hash & (tab.length - 1);
+                Entry first = (Entry) BUCKETS.getAcquire(tab, index);
+                boolean found = false;
+                for (Entry entry = first; entry != null; entry = entry.next) {
+                    if (entry == dropped) {
+                        found = true;
+                        break;
+                    }
+                }
+                // An entry copied by a resize or an earlier removal is no longer in the table
+                if (found) {
+                    Entry chain = dropped.next;
+                    count--;
+                    for (Entry entry = first; entry != dropped; entry = entry.next) {
+                        String pooled = entry.get();
+                        if (pooled == null) {
+                            count--;
+                        } else {
+                            chain = new Entry(pooled, entry.hash, chain, collected);
+                        }
+                    }
+                    BUCKETS.setRelease(tab, index, chain);
+                }
+            }
+        }
+
+        /**
+         * Doubles the number of buckets, copying the entries of the strings still in use into a new table.
+         */
+        private void resize() {
+            Entry[] old = table;
+            Entry[] tab = new Entry[old.length * 2];
+            int live = 0;
+            for (Entry first : old) {
+                for (Entry entry = first; entry != null; entry = entry.next) {
+                    String pooled = entry.get();
+                    if (pooled != null) {
+                        int index = entry.hash & (tab.length - 1);
+                        tab[index] = new Entry(pooled, entry.hash, tab[index], collected);
+                        live++;
+                    }
+                }
+            }
+            // Counts the entry being added, as count did before the resize
+            count = live + 1;
+            table = tab;
+        }
+    }
+
+    /**
+     * Retrieves the pooled instance of a string, pooling the string itself if no equal one is pooled yet.
+     * A string already pooled is found without locking.
+     *
+     * @param value The string to intern, may be null.
+     * @return The pooled string equal to the value, or null if the value is null.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups.increment();
+        int hash = spread(value.hashCode());
+        Segment segment = segmentFor(hash);
+        String pooled = segment.find(value, hash);
+        if (pooled == null) {
+            pooled = segment.intern(value, hash);
+        }
+        if (pooled != value) {
+            hits.increment();
+            bytesSaved.add(sizeOf(value));
+        }
+        return pooled;
+    }
+
+    /**
+     * Retrieves the pooled instance of a string, without pooling it and without locking.
+     *
+     * @param value The string to look for.
+     * @return The pooled string equal to the value, or null if none is pooled, in which case no list holds the value.
+     */
+    public static String find(String value) {
+        int hash = spread(value.hashCode());
+        return segmentFor(hash).find(value, hash);
+    }
+
+    /**
+     * Retrieves the number of distinct strings in the pool.
+     *
+     * @return The number of pooled strings still in use.
+     */
+    public static int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Forgets the lookup, hit and saved byte counts gathered so far.
+     */
+    public static void resetStatistics() {
+        lookups.reset();
+        hits.reset();
+        bytesSaved.reset();
+    }
+
+    /**
+     * Prints the number of pooled strings, lookups and hits, and the estimated memory saved by sharing strings.
+     */
+    public static void printStatistics() {
+        long lookupCount = lookups.sum();
+        long hitCount = hits.sum();
+        System.out.printf("Word pool: %,d distinct string(s); %,d lookup(s), %,d shared (%.1f%%), about %,d byte(s) saved.%n",
+                size(), lookupCount, hitCount, lookupCount == 0 ? 0.0 : 100.0 * hitCount / lookupCount, bytesSaved.sum());
+    }
+
+    /**
+     * Selects the segment of a hash from its high bits.
+     *
+     * @param hash The spread hash code of a string.
+     * @return The segment holding the strings of that hash.
+     */
+    private static Segment segmentFor(int hash) {
+        return segments[hash >>> SEGMENT_SHIFT];
+    }
+
+    /**
+     * Spreads the high bits of a hash code to the low ones, which select the bucket.
+     *
+     * @param hashCode The hash code of a string.
+     * @return The hash used by the table.
+     */
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    /**
+     * Estimates the memory taken by a string with compact strings: one byte per character when every character
+     * fits in Latin-1, two bytes otherwise, and the array rounded up to 8 bytes.
+     *
+     * @param value The string to measure.
+     * @return The estimated number of bytes of the string and of its characters.
+     */
+    private static long sizeOf(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING_OVERHEAD + ((ARRAY_OVERHEAD + (long) value.length() * bytesPerChar + 7) & ~7L);
+    }
+}
@@ -0,0 +1,97 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents a sorted index of words answering prefix queries.
+ * Each distinct word is kept once along with the number of times it occurs,
+ * so a query only visits the words that start with the requested prefix.
+ */
+public class WordPrefixIndex {
+
+    /** Distinct words in alphabetical order, mapped to their number of occurrences. */
+    private NavigableMap<String, Integer> words;
+    private AtomicInteger size;
+
+    /**
+     * Constructs an empty prefix index.
+     */
+    public WordPrefixIndex() {
+        this(false);
+    }
+
+    /**
+     * Constructs an empty prefix index, optionally safe for concurrent updates and queries.
+     *
+     * @param concurrent Whether several threads may update and query the index at the same time.
+     */
+    public WordPrefixIndex(boolean concurrent) {
+        words = concurrent ? new ConcurrentSkipListMap<>() : new TreeMap<>();
+        size = new AtomicInteger();
+    }
+
+    /**
+     * Adds one occurrence of a word to the index.
+     *
+     * @param word The word to be added.
+     */
+    public void add(String word) {
+        words.merge(word, 1, Integer::sum);
+        size.incrementAndGet();
+    }
+
+    /**
+     * Removes one occurrence of a word from the index.
+     * If the word is not in the index, nothing happens.
+     *
+     * @param word The word to be removed.
+     */
+    public void remove(String word) {
+        // Retry until the count read is still current when it is updated
+        while (true) {
+            Integer count = words.get(word);
+            if (count == null) {
+                return;
+            }
+            if (count == 1 ? words.remove(word, count) : words.replace(word, count, count - 1)) {
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retrieves every word starting with the specified prefix, in alphabetical order.
+     * A word occurring several times is listed as many times.
+     *
+     * @param prefix The prefix the words must start with.
+     * @return An ArrayList containing the matching words, sorted alphabetically.
+     */
+    public ArrayList<String> getWordsWithPrefix(String prefix) {
+        ArrayList<String> matches = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : words.tailMap(prefix, true).entrySet()) {
+            String word = entry.getKey();
+            if (!word.startsWith(prefix)) {
+                break; // Past the last word with this prefix
+            }
+            for (int i = entry.getValue(); i > 0; i--) {
+                matches.add(word);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Retrieves the number of word occurrences in the index.
+     *
+     * @return The number of word occurrences in the index.
+     */
+    public int getSize() {
+        return size.get();
+    }
+}
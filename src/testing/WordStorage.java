@@ -0,0 +1,41 @@
+package testing;
+
+/**
+ * Represents the ways the words of a topic can be stored.
+ */
+public enum WordStorage {
+
+    /** One node per word, in an {@link OurLinkedList}. */
+    LINKED,
+    /** Arrays of words chained together, in an {@link UnrolledWordList}. */
+    UNROLLED,
+    /**
+     * One node per word, in an {@link OurLinkedList} keeping its words distinct: a word already in the topic is not
+     * added again, and a hash map finds the node of each word.
+     */
+    HASHED,
+    /**
+     * UTF-8 bytes of the words in a direct buffer outside the heap, in an {@link OffHeapWordList}.
+     * The words are not indexed on the heap: word searches and prefix queries scan the bytes instead.
+     */
+    OFF_HEAP;
+
+    /**
+     * Creates an empty word list using this storage.
+     *
+     * @param listener The listener to notify whenever a word is added or removed, may be null.
+     * @return A new, empty word list.
+     */
+    WordList newList(WordListener listener) {
+        switch (this) {
+            case UNROLLED:
+                return new UnrolledWordList(listener);
+            case HASHED:
+                return new OurLinkedList(listener, true);
+            case OFF_HEAP:
+                return new OffHeapWordList(listener);
+            default:
+                return new OurLinkedList(listener);
+        }
+    }
+}